@@ -0,0 +1,36 @@
+package dev.tronxi.papayaclient.configuration;
+
+import java.io.File;
+import java.nio.file.Path;
+
+public final class ApplicationDirectory {
+
+    private ApplicationDirectory() {
+    }
+
+    public static Path resolve(String directory, String defaultName) {
+        if (directory == null || directory.isBlank()) {
+            return resolve().toPath().resolve(defaultName);
+        }
+        return Path.of(directory);
+    }
+
+    public static File resolve() {
+        String jarDir = ApplicationDirectory.class.getProtectionDomain()
+                .getCodeSource()
+                .getLocation()
+                .getPath();
+
+        if (jarDir.startsWith("nested:")) {
+            jarDir = jarDir.substring(7);
+        }
+
+        int jarEndIndex = jarDir.indexOf(".jar");
+        if (jarEndIndex != -1) {
+            jarDir = jarDir.substring(0, jarEndIndex + 4);
+        }
+
+        File jarFile = new File(jarDir);
+        return jarFile.getParentFile();
+    }
+}
@@ -0,0 +1,46 @@
+package dev.tronxi.papayaclient.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class ExecutorConfiguration {
+
+    @Value("${papaya.executor.virtualThreads}")
+    private boolean virtualThreads;
+
+    @Value("${papaya.executor.maxConnections}")
+    private int maxConnections;
+
+    @Value("${papaya.executor.maxHandlerThreads}")
+    private int maxHandlerThreads;
+
+    @Value("${papaya.executor.hashingThreads}")
+    private int hashingThreads;
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService connectionExecutor() {
+        if (virtualThreads) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("papaya-connection-", 0).factory());
+        }
+        return Executors.newFixedThreadPool(maxConnections, Thread.ofPlatform().name("papaya-connection-", 0).factory());
+    }
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService handlerExecutor() {
+        if (virtualThreads) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("papaya-handler-", 0).factory());
+        }
+        return Executors.newFixedThreadPool(maxHandlerThreads, Thread.ofPlatform().name("papaya-handler-", 0).factory());
+    }
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService hashingExecutor() {
+        int threads = hashingThreads > 0 ? hashingThreads : Runtime.getRuntime().availableProcessors();
+        return Executors.newFixedThreadPool(threads, Thread.ofPlatform().name("papaya-hashing-", 0).daemon().factory());
+    }
+}
@@ -0,0 +1,27 @@
+package dev.tronxi.papayaclient.configuration;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Map;
+
+public class PersistenceEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+    private static final String JPA_AUTO_CONFIGURATIONS = String.join(",",
+            "org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration",
+            "org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration",
+            "org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration",
+            "org.springframework.boot.autoconfigure.data.jpa.JpaRepositoriesAutoConfiguration");
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (!"log".equals(environment.getProperty("papaya.persistence.store"))) {
+            return;
+        }
+        String exclude = environment.getProperty("spring.autoconfigure.exclude");
+        String value = exclude == null || exclude.isBlank() ? JPA_AUTO_CONFIGURATIONS : exclude + "," + JPA_AUTO_CONFIGURATIONS;
+        environment.getPropertySources().addFirst(new MapPropertySource("papayaPersistence", Map.of("spring.autoconfigure.exclude", value)));
+    }
+}
@@ -1,15 +1,21 @@
 package dev.tronxi.papayaclient.peer;
 
+import dev.tronxi.papayaclient.peer.connection.PeerConnectionPool;
+import dev.tronxi.papayaclient.peer.download.PartRequest;
+import dev.tronxi.papayaclient.peer.download.PeerRequestWindows;
+import dev.tronxi.papayaclient.peer.download.PieceSelectionStrategy;
+import dev.tronxi.papayaclient.peer.download.SwarmState;
+import dev.tronxi.papayaclient.peer.protocol.PeerMessageCodec;
+import dev.tronxi.papayaclient.persistence.FileManager;
 import dev.tronxi.papayaclient.persistence.papayastatusfile.*;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.net.Socket;
 import java.util.*;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 @Service
 public class AskForPartFileSender {
@@ -19,75 +25,147 @@ public class AskForPartFileSender {
     @Value("${papaya.port}")
     protected int port;
 
-    private static final Map<Peer, Long> peerAskedFiles = new HashMap<>();
-    private static final Map<Long, PapayaStatus> partStatus = new HashMap<>();
+    private final PeerConnectionPool peerConnectionPool;
+    private final PeerMessageCodec peerMessageCodec;
+    private final PeerRequestWindows peerRequestWindows;
+    private final FileManager fileManager;
+    private final PieceSelectionStrategy pieceSelectionStrategy;
+    private final SwarmState swarmState;
+
+    public AskForPartFileSender(PeerConnectionPool peerConnectionPool, PeerMessageCodec peerMessageCodec, PeerRequestWindows peerRequestWindows, FileManager fileManager, PieceSelectionStrategy pieceSelectionStrategy, SwarmState swarmState) {
+        this.peerConnectionPool = peerConnectionPool;
+        this.peerMessageCodec = peerMessageCodec;
+        this.peerRequestWindows = peerRequestWindows;
+        this.fileManager = fileManager;
+        this.pieceSelectionStrategy = pieceSelectionStrategy;
+        this.swarmState = swarmState;
+    }
 
     public void send(PapayaStatusFile papayaStatusFile) {
         logger.info("Ask for part file started: " + papayaStatusFile.getFileId());
 
-        papayaStatusFile.getPartStatusFiles().stream()
-                .filter(partStatusFile -> partStatusFile.getStatus().equals(PapayaStatus.INCOMPLETE))
-                .filter(status -> partStatus.getOrDefault(status.getId(), PapayaStatus.INCOMPLETE) == PapayaStatus.INCOMPLETE)
-                .findFirst()
-                .ifPresentOrElse(status -> {
-                    logger.info("Asking process for: " + status.getFileName() + " with status: " + status.getStatus() + " id: " + status.getId());
-
-                    Set<PartPeerStatusFile> partPeerStatusFiles = status.getPartPeerStatusFiles();
-                    partPeerStatusFiles.forEach(partPeerStatusFile -> peerAskedFiles.putIfAbsent(partPeerStatusFile.getPeer(), 0L));
-
-                    logger.info("PeerAskedFiles before: " + peerAskedFiles);
-
-                    partPeerStatusFiles.stream()
-                            .min(Comparator.comparingLong(partPeerStatusFile -> peerAskedFiles.getOrDefault(partPeerStatusFile.getPeer(), 0L)))
-                            .ifPresentOrElse(partPeerStatusFile -> {
-                                partStatus.put(status.getId(), PapayaStatus.ASKED);
-                                peerAskedFiles.put(partPeerStatusFile.getPeer(), peerAskedFiles.get(partPeerStatusFile.getPeer()) + 1);
-                                sendMessage(papayaStatusFile, status, partPeerStatusFiles, partPeerStatusFile);
-                                logger.info("PeerAskedFiles after: " + peerAskedFiles);
-                            }, () -> {
-                                partStatus.put(status.getId(), PapayaStatus.ASKED);
-                                send(papayaStatusFile);
-                            });
-                }, () -> {
-                    logger.info("Removing part status");
-                    papayaStatusFile.getPartStatusFiles().forEach(status -> partStatus.remove(status.getId()));
-                    if (papayaStatusFile.getStatus() != PapayaStatus.COMPLETE) {
-                        logger.info("Retry send");
-                        send(papayaStatusFile);
-                    }
-                });
+        List<PartStatusFile> missingParts = papayaStatusFile.getPartStatusFiles().stream()
+                .filter(partStatusFile -> !papayaStatusFile.isComplete(partStatusFile.getFileName()))
+                .toList();
+        boolean endgame = isEndgame(missingParts);
+        List<PartStatusFile> candidates = missingParts.stream()
+                .filter(status -> endgame || !swarmState.isAsked(status.getId()))
+                .toList();
+
+        for (PartStatusFile status : pieceSelectionStrategy.order(papayaStatusFile.getFileId(), candidates)) {
+            int partIndex = Integer.parseInt(status.getFileName());
+            List<PartPeerStatusFile> availablePeers = status.getPartPeerStatusFiles().stream()
+                    .filter(partPeerStatusFile -> peerRequestWindows.hasCapacity(partPeerStatusFile.getPeer()))
+                    .filter(partPeerStatusFile -> !peerRequestWindows.isRequested(partPeerStatusFile.getPeer(), papayaStatusFile.getFileId(), partIndex))
+                    .sorted(Comparator.<PartPeerStatusFile>comparingInt(partPeerStatusFile -> peerRequestWindows.getPenalty(partPeerStatusFile.getPeer()))
+                            .thenComparing(partPeerStatusFile -> partPeerStatusFile.getPartPeerStatus() == PartPeerStatus.TIMEOUT)
+                            .thenComparingInt(partPeerStatusFile -> peerRequestWindows.getInFlight(partPeerStatusFile.getPeer())))
+                    .toList();
+            if (availablePeers.isEmpty()) {
+                continue;
+            }
+            boolean marked = swarmState.tryMarkAsked(papayaStatusFile.getFileId(), status.getId());
+            if (!marked && !endgame) {
+                continue;
+            }
+            logger.info("Asking process for: " + status.getFileName() + " with status: " + status.getStatus() + " id: " + status.getId() + " endgame: " + endgame);
+            if (!sendMessage(papayaStatusFile, status, availablePeers, endgame) && marked) {
+                swarmState.clearAsked(status.getId());
+            }
+        }
     }
 
+    private boolean isEndgame(List<PartStatusFile> missingParts) {
+        int swarmWindow = missingParts.stream()
+                .flatMap(partStatusFile -> partStatusFile.getPartPeerStatusFiles().stream())
+                .map(PartPeerStatusFile::getPeer)
+                .distinct()
+                .mapToInt(peerRequestWindows::getWindow)
+                .sum();
+        return !missingParts.isEmpty() && missingParts.size() <= swarmWindow;
+    }
 
-    private void sendMessage(PapayaStatusFile papayaStatusFile, PartStatusFile partStatusFile, Set<PartPeerStatusFile> partPeerStatusFileList, PartPeerStatusFile partPeerStatusFile) {
-        logger.info("Sending message: ask for part file: " + papayaStatusFile.getFileId() + " partFileName: " + partStatusFile.getFileName() + " Peer: " + partPeerStatusFile);
-        if (partPeerStatusFileList.isEmpty()) {
-            partStatus.put(partStatusFile.getId(), PapayaStatus.ASKED);
-            send(papayaStatusFile);
+    public void onPartReceived(Peer peer, String fileId, int partIndex, boolean valid) {
+        if (valid) {
+            peerRequestWindows.onDelivered(peer, fileId, partIndex);
+            peerRequestWindows.releaseRequests(fileId, partIndex).forEach(this::cancel);
+        } else {
+            peerRequestWindows.onFailed(peer, fileId, partIndex)
+                    .ifPresent(partRequest -> swarmState.clearAsked(partRequest.partId()));
         }
-        if (!partPeerStatusFileList.isEmpty()) {
-            partPeerStatusFileList.remove(partPeerStatusFile);
-            try (Socket socket = new Socket(partPeerStatusFile.getPeer().address(), partPeerStatusFile.getPeer().port());
-                 OutputStream outputStream = socket.getOutputStream()) {
-                ByteArrayOutputStream dataStream = new ByteArrayOutputStream();
-                dataStream.write(PeerMessageType.ASK_FOR_PART_FILE.getValue());
-                dataStream.write(papayaStatusFile.getFileId().getBytes());
-                dataStream.write(partStatusFile.getFileName().getBytes());
-                dataStream.write("#".getBytes());
-                dataStream.write(String.valueOf(port).getBytes());
-                dataStream.write("#".getBytes());
-                outputStream.write(dataStream.toByteArray());
+    }
+
+    public void onPartRepairing(Peer peer, String fileId, int partIndex) {
+        peerRequestWindows.onFailed(peer, fileId, partIndex);
+    }
+
+    public void onRepairFailed(Long partId) {
+        swarmState.clearAsked(partId);
+    }
+
+    @Scheduled(fixedRateString = "${papaya.download.timerTick}")
+    public void expireRequests() {
+        List<PartRequest> expiredRequests = peerRequestWindows.expireRequests();
+        if (expiredRequests.isEmpty()) {
+            return;
+        }
+        expiredRequests.forEach(partRequest -> {
+            logger.info("Request expired: " + partRequest + " next timeout: " + peerRequestWindows.getRequestTimeout(partRequest.peer()));
+            swarmState.clearAsked(partRequest.partId());
+        });
+        expiredRequests.stream()
+                .collect(Collectors.groupingBy(PartRequest::fileId))
+                .forEach((fileId, partRequests) -> fileManager.retrievePapayaStatusFileFromFile(fileId)
+                        .filter(papayaStatusFile -> papayaStatusFile.getStatus() != PapayaStatus.COMPLETE)
+                        .ifPresent(papayaStatusFile -> {
+                            markTimeouts(papayaStatusFile, partRequests);
+                            send(papayaStatusFile);
+                        }));
+    }
+
+    private void markTimeouts(PapayaStatusFile papayaStatusFile, List<PartRequest> partRequests) {
+        papayaStatusFile.getPartStatusFiles().forEach(partStatusFile -> partStatusFile.getPartPeerStatusFiles().stream()
+                .filter(partPeerStatusFile -> partRequests.stream().anyMatch(partRequest ->
+                        partRequest.partId().equals(partStatusFile.getId()) && partRequest.peer().equals(partPeerStatusFile.getPeer())))
+                .forEach(partPeerStatusFile -> {
+                    partPeerStatusFile.setPartPeerStatus(PartPeerStatus.TIMEOUT);
+                    partPeerStatusFile.setLatestUpdateTime(System.currentTimeMillis());
+                }));
+        fileManager.savePapayaStatusFile(papayaStatusFile);
+    }
+
+    private void cancel(PartRequest partRequest) {
+        logger.info("Cancelling request: " + partRequest);
+        try {
+            peerConnectionPool.send(partRequest.peer(), peerMessageCodec.encode(PeerMessageType.CANCEL, partRequest.fileId(), partRequest.partIndex(), port));
+        } catch (IOException e) {
+            logger.severe(e.getMessage());
+        }
+    }
+
+    private boolean sendMessage(PapayaStatusFile papayaStatusFile, PartStatusFile partStatusFile, List<PartPeerStatusFile> partPeerStatusFiles, boolean allPeers) {
+        int partIndex = Integer.parseInt(partStatusFile.getFileName());
+        boolean sent = false;
+        for (PartPeerStatusFile partPeerStatusFile : partPeerStatusFiles) {
+            Peer peer = partPeerStatusFile.getPeer();
+            logger.info("Sending message: ask for part file: " + papayaStatusFile.getFileId() + " partFileName: " + partStatusFile.getFileName() + " Peer: " + partPeerStatusFile);
+            PartRequest partRequest = new PartRequest(papayaStatusFile.getFileId(), partIndex, partStatusFile.getId(), peer, System.currentTimeMillis());
+            if (!peerRequestWindows.tryRequest(partRequest)) {
+                continue;
+            }
+            try {
+                peerConnectionPool.send(peer, peerMessageCodec.encode(PeerMessageType.ASK_FOR_PART_FILE, papayaStatusFile.getFileId(), partIndex, port));
                 partPeerStatusFile.setPartPeerStatus(PartPeerStatus.ASKED);
                 partPeerStatusFile.setLatestUpdateTime(System.currentTimeMillis());
-
+                sent = true;
+                if (!allPeers) {
+                    return true;
+                }
             } catch (IOException e) {
+                peerRequestWindows.cancelRequest(partRequest);
                 logger.severe(e.getMessage());
-                partPeerStatusFileList.stream()
-                        .filter(pf -> !pf.equals(partPeerStatusFile))
-                        .min(Comparator.comparingLong(pf -> peerAskedFiles.getOrDefault(pf.getPeer(), 0L)))
-                        .ifPresent(pf -> sendMessage(papayaStatusFile, partStatusFile, partPeerStatusFileList, pf));
             }
         }
-
+        return sent;
     }
 }
@@ -0,0 +1,262 @@
+package dev.tronxi.papayaclient.peer;
+
+import dev.tronxi.papayaclient.peer.connection.NioInboundConnection;
+import dev.tronxi.papayaclient.peer.protocol.PeerMessage;
+import dev.tronxi.papayaclient.peer.protocol.PeerMessageCodec;
+import dev.tronxi.papayaclient.peer.services.DownloadService;
+import dev.tronxi.papayaclient.peer.services.HandlerService;
+import dev.tronxi.papayaclient.peer.services.StopService;
+import dev.tronxi.papayaclient.peer.services.TransferLimiter;
+import dev.tronxi.papayaclient.persistence.FileManager;
+import dev.tronxi.papayaclient.persistence.papayafile.PapayaFile;
+import javafx.application.Platform;
+import javafx.scene.control.TextArea;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Logger;
+
+@Service
+@ConditionalOnProperty(name = "papaya.connectionManager", havingValue = "nio")
+public class PeerConnectionManagerNIO implements PeerConnectionManager {
+
+    private static final Logger logger = Logger.getLogger(PeerConnectionManagerNIO.class.getName());
+    private static final long SELECT_TIMEOUT = 100;
+
+    @Value("${papaya.port}")
+    private int port;
+
+    @Value("${papaya.nio.selectorThreads}")
+    private int selectorThreads;
+
+    private ServerSocketChannel serverSocketChannel;
+    private final List<SelectorLoop> selectorLoops = new ArrayList<>();
+    private volatile boolean running;
+
+    private final DownloadService downloadService;
+    private final StopService stopService;
+    private final HandlerService handlerService;
+    private final PeerMessageCodec peerMessageCodec;
+    private final FileManager fileManager;
+    private final TransferLimiter transferLimiter;
+    private final ExecutorService connectionExecutor;
+
+    public PeerConnectionManagerNIO(DownloadService downloadService, StopService stopService, HandlerService handlerService, PeerMessageCodec peerMessageCodec, FileManager fileManager, TransferLimiter transferLimiter,
+                                    @Qualifier("connectionExecutor") ExecutorService connectionExecutor) {
+        this.downloadService = downloadService;
+        this.stopService = stopService;
+        this.handlerService = handlerService;
+        this.peerMessageCodec = peerMessageCodec;
+        this.fileManager = fileManager;
+        this.transferLimiter = transferLimiter;
+        this.connectionExecutor = connectionExecutor;
+    }
+
+    @Override
+    public void start(TextArea textArea) {
+        logger.info("Start peer connection manager nio");
+        try {
+            serverSocketChannel = ServerSocketChannel.open();
+            serverSocketChannel.bind(new InetSocketAddress(port));
+            running = true;
+            for (int i = 0; i < selectorThreads; i++) {
+                SelectorLoop selectorLoop = new SelectorLoop(Selector.open(), textArea);
+                selectorLoops.add(selectorLoop);
+                Thread.ofPlatform().name("papaya-selector-" + i).start(selectorLoop);
+            }
+            Thread.ofPlatform().name("papaya-acceptor").start(this::accept);
+        } catch (IOException e) {
+            logger.severe(e.getMessage());
+        }
+    }
+
+    private void accept() {
+        int next = 0;
+        while (running) {
+            try {
+                SocketChannel socketChannel = serverSocketChannel.accept();
+                socketChannel.configureBlocking(false);
+                socketChannel.socket().setTcpNoDelay(true);
+                selectorLoops.get(next).register(socketChannel);
+                next = (next + 1) % selectorLoops.size();
+            } catch (IOException e) {
+                if (running) {
+                    logger.severe(e.getMessage());
+                }
+                return;
+            }
+        }
+    }
+
+    private class SelectorLoop implements Runnable {
+
+        private final Selector selector;
+        private final TextArea textArea;
+        private final Queue<SocketChannel> pendingRegistrations = new ConcurrentLinkedQueue<>();
+        private final List<SelectionKey> waitingForPermit = new ArrayList<>();
+        private final Queue<SelectionKey> writeCompleted = new ConcurrentLinkedQueue<>();
+
+        private SelectorLoop(Selector selector, TextArea textArea) {
+            this.selector = selector;
+            this.textArea = textArea;
+        }
+
+        private void register(SocketChannel socketChannel) {
+            pendingRegistrations.add(socketChannel);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    selector.select(SELECT_TIMEOUT);
+                    registerPending();
+                    resumeWaiting();
+                    resumeWritten();
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        if (key.isValid() && key.isReadable()) {
+                            read(key, (NioInboundConnection) key.attachment());
+                        }
+                    }
+                    selector.selectedKeys().clear();
+                } catch (IOException | ClosedSelectorException e) {
+                    logger.severe(e.getMessage());
+                    return;
+                }
+            }
+            selector.keys().forEach(key -> ((NioInboundConnection) key.attachment()).close());
+            try {
+                selector.close();
+            } catch (IOException e) {
+                logger.severe(e.getMessage());
+            }
+        }
+
+        private void registerPending() {
+            SocketChannel socketChannel;
+            while ((socketChannel = pendingRegistrations.poll()) != null) {
+                try {
+                    NioInboundConnection connection = new NioInboundConnection(socketChannel, peerMessageCodec, fileManager, transferLimiter, connectionExecutor);
+                    socketChannel.register(selector, SelectionKey.OP_READ, connection);
+                    logger.info("Connection from " + connection.getSenderAddress());
+                } catch (IOException e) {
+                    logger.severe(e.getMessage());
+                    try {
+                        socketChannel.close();
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+        }
+
+        private void resumeWaiting() {
+            List<SelectionKey> keys = new ArrayList<>(waitingForPermit);
+            waitingForPermit.clear();
+            keys.forEach(this::resume);
+        }
+
+        private void resumeWritten() {
+            SelectionKey key;
+            while ((key = writeCompleted.poll()) != null) {
+                if (key.isValid()) {
+                    resume(key);
+                }
+            }
+        }
+
+        private void resume(SelectionKey key) {
+            NioInboundConnection connection = (NioInboundConnection) key.attachment();
+            try {
+                dispatch(connection.process());
+                updateInterest(key, connection);
+            } catch (IOException e) {
+                logger.severe(e.getMessage());
+                key.cancel();
+                connection.close();
+            }
+        }
+
+        private void read(SelectionKey key, NioInboundConnection connection) {
+            try {
+                dispatch(connection.onReadable());
+                updateInterest(key, connection);
+            } catch (EOFException e) {
+                logger.info(e.getMessage());
+                key.cancel();
+                connection.close();
+            } catch (IOException e) {
+                logger.severe(e.getMessage());
+                key.cancel();
+                connection.close();
+            }
+        }
+
+        private void updateInterest(SelectionKey key, NioInboundConnection connection) {
+            if (!key.isValid()) {
+                return;
+            }
+            connection.getPendingWrite().ifPresentOrElse(pendingWrite -> {
+                key.interestOps(0);
+                pendingWrite.whenComplete((result, throwable) -> {
+                    writeCompleted.add(key);
+                    selector.wakeup();
+                });
+            }, () -> {
+                if (connection.isWaitingForPermit()) {
+                    key.interestOps(0);
+                    waitingForPermit.add(key);
+                } else {
+                    key.interestOps(SelectionKey.OP_READ);
+                }
+            });
+        }
+
+        private void dispatch(List<PeerMessage> messages) {
+            messages.forEach(peerMessage -> handlerService.handle(peerMessage).thenAccept(this::appendLog));
+        }
+
+        private void appendLog(String string) {
+            Platform.runLater(() -> {
+                textArea.appendText("\n" + string);
+                String[] lines = textArea.getText().split("\n");
+                if (lines.length > 100) {
+                    String newText = String.join("\n", Arrays.copyOfRange(lines, lines.length - 100, lines.length));
+                    textArea.appendText(newText);
+                    textArea.appendText("");
+                }
+            });
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        selectorLoops.forEach(selectorLoop -> selectorLoop.selector.wakeup());
+        this.stopService.stop(serverSocketChannel != null ? serverSocketChannel.socket() : null);
+    }
+
+    @Override
+    public void download(PapayaFile papayaFile) {
+        downloadService.download(papayaFile);
+    }
+
+    @Override
+    @Scheduled(fixedRate = 300000)
+    public void startAllIncompleteDownloads() {
+        downloadService.startAllIncompleteDownloads();
+    }
+}
@@ -1,28 +1,43 @@
 package dev.tronxi.papayaclient.peer;
 
+import dev.tronxi.papayaclient.peer.protocol.PeerMessage;
+import dev.tronxi.papayaclient.peer.protocol.PeerMessageCodec;
+import dev.tronxi.papayaclient.peer.protocol.PeerMessageHeader;
 import dev.tronxi.papayaclient.peer.services.DownloadService;
 import dev.tronxi.papayaclient.peer.services.HandlerService;
 import dev.tronxi.papayaclient.peer.services.StopService;
+import dev.tronxi.papayaclient.peer.services.TransferLimiter;
+import dev.tronxi.papayaclient.persistence.FileManager;
+import dev.tronxi.papayaclient.persistence.incoming.IncomingPart;
+import dev.tronxi.papayaclient.persistence.incoming.StagedPart;
 import dev.tronxi.papayaclient.persistence.papayafile.PapayaFile;
 import javafx.application.Platform;
 import javafx.concurrent.Task;
 import javafx.scene.control.TextArea;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 
 import java.util.logging.Logger;
 
 @Service
+@ConditionalOnProperty(name = "papaya.connectionManager", havingValue = "tcp", matchIfMissing = true)
 public class PeerConnectionManagerTCP implements PeerConnectionManager {
 
     private static final Logger logger = Logger.getLogger(PeerConnectionManagerTCP.class.getName());
+    private static final int RECEIVE_BUFFER_SIZE = 64 * 1024;
 
     @Value("${papaya.port}")
     private int port;
@@ -32,11 +47,23 @@ public class PeerConnectionManagerTCP implements PeerConnectionManager {
     private final DownloadService downloadService;
     private final StopService stopService;
     private final HandlerService handlerService;
+    private final PeerMessageCodec peerMessageCodec;
+    private final FileManager fileManager;
+    private final TransferLimiter transferLimiter;
+    private final ExecutorService connectionExecutor;
+    private final Semaphore connectionPermits;
 
-    public PeerConnectionManagerTCP(DownloadService downloadService, StopService stopService, HandlerService handlerService) {
+    public PeerConnectionManagerTCP(DownloadService downloadService, StopService stopService, HandlerService handlerService, PeerMessageCodec peerMessageCodec, FileManager fileManager, TransferLimiter transferLimiter,
+                                    @Qualifier("connectionExecutor") ExecutorService connectionExecutor,
+                                    @Value("${papaya.executor.maxConnections}") int maxConnections) {
         this.downloadService = downloadService;
         this.stopService = stopService;
         this.handlerService = handlerService;
+        this.peerMessageCodec = peerMessageCodec;
+        this.fileManager = fileManager;
+        this.transferLimiter = transferLimiter;
+        this.connectionExecutor = connectionExecutor;
+        this.connectionPermits = new Semaphore(maxConnections);
     }
 
     @Override
@@ -48,33 +75,22 @@ public class PeerConnectionManagerTCP implements PeerConnectionManager {
                 @Override
                 protected Void call() {
                     while (true) {
-                        try (Socket clientSocket = serverSocket.accept();
-                             InputStream inputStream = clientSocket.getInputStream();
-                             ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-                            logger.info("Receiving...");
-
-                            byte[] buffer = new byte[80000];
-                            int length;
-                            while ((length = inputStream.read(buffer)) != -1) {
-                                outputStream.write(buffer, 0, length);
-                            }
-                            if (outputStream.size() > 0) {
-                                byte[] receivedData = outputStream.toByteArray();
-                                CompletableFuture<String> message = handlerService.handle(clientSocket, receivedData);
-                                message.thenAcceptAsync(string -> Platform.runLater(() -> {
-                                    textArea.appendText("\n" + string);
-                                    String[] lines = textArea.getText().split("\n");
-                                    if (lines.length > 100) {
-                                        String newText = String.join("\n", Arrays.copyOfRange(lines, lines.length - 100, lines.length));
-                                        textArea.appendText(newText);
-                                        textArea.appendText("");
-                                    }
-                                }));
-                            } else {
-                                logger.info("Received empty message");
-                            }
-                        } catch (IOException e) {
+                        try {
+                            connectionPermits.acquire();
+                            Socket clientSocket = serverSocket.accept();
+                            connectionExecutor.execute(() -> {
+                                try {
+                                    receive(clientSocket, textArea);
+                                } finally {
+                                    connectionPermits.release();
+                                }
+                            });
+                        } catch (IOException | RejectedExecutionException e) {
                             logger.severe(e.getMessage());
+                            connectionPermits.release();
+                            return null;
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
                             return null;
                         }
                     }
@@ -86,6 +102,68 @@ public class PeerConnectionManagerTCP implements PeerConnectionManager {
         }
     }
 
+    private void receive(Socket clientSocket, TextArea textArea) {
+        logger.info("Connection from " + clientSocket.getInetAddress());
+        try (clientSocket;
+             DataInputStream inputStream = new DataInputStream(new BufferedInputStream(clientSocket.getInputStream(), RECEIVE_BUFFER_SIZE))) {
+            String senderAddress = clientSocket.getInetAddress().getHostAddress();
+            byte[] buffer = new byte[RECEIVE_BUFFER_SIZE];
+            while (true) {
+                PeerMessageHeader header = peerMessageCodec.readHeader(inputStream);
+                logger.info("Receiving...");
+                PeerMessage peerMessage;
+                if (header.type() == PeerMessageType.PART_FILE) {
+                    peerMessage = header.toMessage(senderAddress, receivePart(header, inputStream, buffer));
+                } else {
+                    byte[] payload = new byte[header.payloadLength()];
+                    inputStream.readFully(payload);
+                    peerMessage = header.toMessage(senderAddress, ByteBuffer.wrap(payload).asReadOnlyBuffer());
+                }
+                CompletableFuture<String> message = handlerService.handle(peerMessage);
+                message.thenAccept(string -> appendLog(textArea, string));
+            }
+        } catch (EOFException e) {
+            logger.info("Connection closed by " + clientSocket.getInetAddress());
+        } catch (IOException e) {
+            logger.severe(e.getMessage());
+        }
+    }
+
+    private StagedPart receivePart(PeerMessageHeader header, InputStream inputStream, byte[] buffer) throws IOException {
+        try {
+            transferLimiter.acquireDownload();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        }
+        try (IncomingPart incomingPart = fileManager.createIncomingPart(header.fileId(), header.partFileName())) {
+            long remaining = header.payloadLength();
+            while (remaining > 0) {
+                int length = inputStream.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (length == -1) {
+                    throw new EOFException("Part " + header.partFileName() + " truncated");
+                }
+                incomingPart.write(ByteBuffer.wrap(buffer, 0, length));
+                remaining -= length;
+            }
+            return incomingPart.finish();
+        } finally {
+            transferLimiter.releaseDownload();
+        }
+    }
+
+    private void appendLog(TextArea textArea, String string) {
+        Platform.runLater(() -> {
+            textArea.appendText("\n" + string);
+            String[] lines = textArea.getText().split("\n");
+            if (lines.length > 100) {
+                String newText = String.join("\n", Arrays.copyOfRange(lines, lines.length - 100, lines.length));
+                textArea.appendText(newText);
+                textArea.appendText("");
+            }
+        });
+    }
+
     @Override
     public void stop() {
         this.stopService.stop(serverSocket);
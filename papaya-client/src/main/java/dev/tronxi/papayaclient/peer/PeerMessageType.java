@@ -6,7 +6,10 @@ public enum PeerMessageType {
     PART_FILE(0),
     ASK_FOR_RESOURCES(1),
     RESPONSE_ASK_FOR_RESOURCES(2),
-    ASK_FOR_PART_FILE(3);
+    ASK_FOR_PART_FILE(3),
+    CANCEL(4),
+    ASK_FOR_BLOCKS(5),
+    BLOCKS(6);
 
 
     private final int value;
@@ -0,0 +1,202 @@
+package dev.tronxi.papayaclient.peer.connection;
+
+import dev.tronxi.papayaclient.peer.PeerMessageType;
+import dev.tronxi.papayaclient.peer.protocol.PeerMessage;
+import dev.tronxi.papayaclient.peer.protocol.PeerMessageCodec;
+import dev.tronxi.papayaclient.peer.protocol.PeerMessageHeader;
+import dev.tronxi.papayaclient.peer.services.TransferLimiter;
+import dev.tronxi.papayaclient.persistence.FileManager;
+import dev.tronxi.papayaclient.persistence.incoming.IncomingPart;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+public class NioInboundConnection {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final SocketChannel socketChannel;
+    private final String senderAddress;
+    private final PeerMessageCodec peerMessageCodec;
+    private final FileManager fileManager;
+    private final TransferLimiter transferLimiter;
+    private final Executor writeExecutor;
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+
+    private PeerMessageHeader header;
+    private ByteBuffer payload;
+    private IncomingPart incomingPart;
+    private long remaining;
+    private boolean waitingForPermit;
+    private CompletableFuture<Void> pendingWrite;
+
+    public NioInboundConnection(SocketChannel socketChannel, PeerMessageCodec peerMessageCodec, FileManager fileManager, TransferLimiter transferLimiter, Executor writeExecutor) throws IOException {
+        this.socketChannel = socketChannel;
+        this.senderAddress = socketChannel.socket().getInetAddress().getHostAddress();
+        this.peerMessageCodec = peerMessageCodec;
+        this.fileManager = fileManager;
+        this.transferLimiter = transferLimiter;
+        this.writeExecutor = writeExecutor;
+    }
+
+    public List<PeerMessage> onReadable() throws IOException {
+        if (socketChannel.read(readBuffer) == -1) {
+            throw new EOFException("Connection closed by " + senderAddress);
+        }
+        return process();
+    }
+
+    public List<PeerMessage> process() throws IOException {
+        List<PeerMessage> messages = new ArrayList<>();
+        readBuffer.flip();
+        try {
+            while (true) {
+                if (pendingWrite != null) {
+                    if (!pendingWrite.isDone()) {
+                        break;
+                    }
+                    completeWrite();
+                }
+                if (header == null) {
+                    Optional<PeerMessageHeader> maybeHeader = peerMessageCodec.decodeHeader(readBuffer);
+                    if (maybeHeader.isEmpty()) {
+                        break;
+                    }
+                    startMessage(maybeHeader.get());
+                }
+                if (waitingForPermit && !acquirePermit()) {
+                    break;
+                }
+                if (incomingPart != null && remaining > 0) {
+                    if (!readBuffer.hasRemaining()) {
+                        break;
+                    }
+                    int length = (int) Math.min(remaining, readBuffer.remaining());
+                    ByteBuffer chunk = ByteBuffer.allocate(length).put(readBuffer.slice(readBuffer.position(), length)).flip();
+                    readBuffer.position(readBuffer.position() + length);
+                    remaining -= length;
+                    write(incomingPart, chunk);
+                    continue;
+                } else if (incomingPart == null) {
+                    int length = Math.min(payload.remaining(), readBuffer.remaining());
+                    payload.put(readBuffer.slice(readBuffer.position(), length));
+                    readBuffer.position(readBuffer.position() + length);
+                    remaining -= length;
+                }
+                if (remaining > 0) {
+                    break;
+                }
+                messages.add(finishMessage());
+            }
+        } finally {
+            readBuffer.compact();
+        }
+        return messages;
+    }
+
+    private void write(IncomingPart incomingPart, ByteBuffer chunk) {
+        pendingWrite = CompletableFuture.runAsync(() -> {
+            try {
+                incomingPart.write(chunk);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, writeExecutor);
+    }
+
+    private void completeWrite() throws IOException {
+        CompletableFuture<Void> write = pendingWrite;
+        pendingWrite = null;
+        try {
+            write.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private void startMessage(PeerMessageHeader header) {
+        this.header = header;
+        this.remaining = header.payloadLength();
+        if (header.type() == PeerMessageType.PART_FILE) {
+            waitingForPermit = true;
+        } else {
+            payload = ByteBuffer.allocate(header.payloadLength());
+        }
+    }
+
+    private boolean acquirePermit() throws IOException {
+        if (!transferLimiter.tryAcquireDownload()) {
+            return false;
+        }
+        waitingForPermit = false;
+        try {
+            incomingPart = fileManager.createIncomingPart(header.fileId(), header.partFileName());
+        } catch (IOException e) {
+            transferLimiter.releaseDownload();
+            throw e;
+        }
+        return true;
+    }
+
+    private PeerMessage finishMessage() throws IOException {
+        PeerMessage message;
+        if (incomingPart != null) {
+            try {
+                message = header.toMessage(senderAddress, incomingPart.finish());
+            } finally {
+                incomingPart.close();
+                incomingPart = null;
+                transferLimiter.releaseDownload();
+            }
+        } else {
+            message = header.toMessage(senderAddress, payload.flip().asReadOnlyBuffer());
+            payload = null;
+        }
+        header = null;
+        return message;
+    }
+
+    public boolean isWaitingForPermit() {
+        return waitingForPermit;
+    }
+
+    public Optional<CompletableFuture<Void>> getPendingWrite() {
+        return Optional.ofNullable(pendingWrite);
+    }
+
+    public String getSenderAddress() {
+        return senderAddress;
+    }
+
+    public void close() {
+        if (incomingPart != null) {
+            IncomingPart part = incomingPart;
+            incomingPart = null;
+            Runnable discard = () -> {
+                part.close();
+                transferLimiter.releaseDownload();
+            };
+            if (pendingWrite != null) {
+                pendingWrite.whenComplete((result, throwable) -> discard.run());
+            } else {
+                discard.run();
+            }
+        }
+        try {
+            socketChannel.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
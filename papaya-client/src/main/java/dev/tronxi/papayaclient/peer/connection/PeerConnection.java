@@ -0,0 +1,118 @@
+package dev.tronxi.papayaclient.peer.connection;
+
+import dev.tronxi.papayaclient.peer.Peer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class PeerConnection {
+
+    private final Peer peer;
+    private final SocketChannel socketChannel;
+    private volatile long lastUsedTime;
+    private volatile boolean busy;
+
+    private PeerConnection(Peer peer, SocketChannel socketChannel) {
+        this.peer = peer;
+        this.socketChannel = socketChannel;
+        this.lastUsedTime = System.currentTimeMillis();
+    }
+
+    public static PeerConnection open(Peer peer) throws IOException {
+        SocketChannel socketChannel = SocketChannel.open(new InetSocketAddress(peer.address(), peer.port()));
+        socketChannel.socket().setTcpNoDelay(true);
+        socketChannel.socket().setKeepAlive(true);
+        return new PeerConnection(peer, socketChannel);
+    }
+
+    public synchronized void send(ByteBuffer frame) throws IOException {
+        begin();
+        try {
+            while (frame.hasRemaining()) {
+                socketChannel.write(frame);
+            }
+        } finally {
+            end();
+        }
+    }
+
+    public synchronized void send(ByteBuffer header, ByteBuffer content) throws IOException {
+        begin();
+        try {
+            ByteBuffer[] buffers = {header, content};
+            while (header.hasRemaining() || content.hasRemaining()) {
+                socketChannel.write(buffers);
+            }
+        } finally {
+            end();
+        }
+    }
+
+    public synchronized void sendFile(ByteBuffer header, Path path, long position, long size) throws IOException {
+        begin();
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (header.hasRemaining()) {
+                socketChannel.write(header);
+            }
+            long end = position + size;
+            while (position < end) {
+                long transferred = fileChannel.transferTo(position, end - position, socketChannel);
+                if (transferred <= 0) {
+                    throw new EOFException("Unexpected end of file at " + position + ": " + path);
+                }
+                position += transferred;
+                lastUsedTime = System.currentTimeMillis();
+            }
+        } finally {
+            end();
+        }
+    }
+
+    private void begin() {
+        busy = true;
+        lastUsedTime = System.currentTimeMillis();
+    }
+
+    private void end() {
+        lastUsedTime = System.currentTimeMillis();
+        busy = false;
+    }
+
+    public boolean isOpen() {
+        return socketChannel.isOpen();
+    }
+
+    public boolean isIdle(long idleTimeout) {
+        return !busy && System.currentTimeMillis() - lastUsedTime > idleTimeout;
+    }
+
+    public boolean closeIfIdle(long idleTimeout) {
+        if (!isIdle(idleTimeout)) {
+            return false;
+        }
+        synchronized (this) {
+            if (!isIdle(idleTimeout)) {
+                return false;
+            }
+            close();
+            return true;
+        }
+    }
+
+    public Peer getPeer() {
+        return peer;
+    }
+
+    public void close() {
+        try {
+            socketChannel.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
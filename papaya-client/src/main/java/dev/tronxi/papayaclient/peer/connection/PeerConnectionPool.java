@@ -0,0 +1,88 @@
+package dev.tronxi.papayaclient.peer.connection;
+
+import dev.tronxi.papayaclient.peer.Peer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+@Service
+public class PeerConnectionPool {
+
+    private static final Logger logger = Logger.getLogger(PeerConnectionPool.class.getName());
+
+    @Value("${papaya.connection.idleTimeout}")
+    private long idleTimeout;
+
+    private final Map<Peer, PeerConnection> connections = new ConcurrentHashMap<>();
+
+    public void send(Peer peer, ByteBuffer frame) throws IOException {
+        send(peer, connection -> connection.send(frame.duplicate()));
+    }
+
+    public void send(Peer peer, ByteBuffer header, ByteBuffer content) throws IOException {
+        send(peer, connection -> connection.send(header.duplicate(), content.duplicate()));
+    }
+
+    public void sendFile(Peer peer, ByteBuffer header, Path path, long position, long size) throws IOException {
+        send(peer, connection -> connection.sendFile(header.duplicate(), path, position, size));
+    }
+
+    private void send(Peer peer, ConnectionWriter writer) throws IOException {
+        PeerConnection connection = retrieveConnection(peer);
+        try {
+            writer.write(connection);
+        } catch (IOException e) {
+            logger.info("Connection to " + peer + " lost, reconnecting: " + e.getMessage());
+            remove(connection);
+            writer.write(retrieveConnection(peer));
+        }
+    }
+
+    private PeerConnection retrieveConnection(Peer peer) throws IOException {
+        PeerConnection connection = connections.get(peer);
+        if (connection != null && connection.isOpen()) {
+            return connection;
+        }
+        synchronized (connections) {
+            connection = connections.get(peer);
+            if (connection == null || !connection.isOpen()) {
+                logger.info("Opening connection to " + peer);
+                connection = PeerConnection.open(peer);
+                connections.put(peer, connection);
+            }
+            return connection;
+        }
+    }
+
+    private void remove(PeerConnection connection) {
+        connections.remove(connection.getPeer(), connection);
+        connection.close();
+    }
+
+    @Scheduled(fixedRate = 30000)
+    public void evictIdleConnections() {
+        connections.values().stream()
+                .filter(connection -> !connection.isOpen() || connection.closeIfIdle(idleTimeout))
+                .toList()
+                .forEach(connection -> {
+                    logger.info("Evicting idle connection to " + connection.getPeer());
+                    remove(connection);
+                });
+    }
+
+    private interface ConnectionWriter {
+        void write(PeerConnection connection) throws IOException;
+    }
+
+    public void closeAll() {
+        connections.values().forEach(PeerConnection::close);
+        connections.clear();
+    }
+}
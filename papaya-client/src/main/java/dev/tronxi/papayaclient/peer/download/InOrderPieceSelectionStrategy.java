@@ -0,0 +1,20 @@
+package dev.tronxi.papayaclient.peer.download;
+
+import dev.tronxi.papayaclient.persistence.papayastatusfile.PartStatusFile;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+
+@Component
+@ConditionalOnProperty(name = "papaya.download.pieceSelection", havingValue = "in-order")
+public class InOrderPieceSelectionStrategy implements PieceSelectionStrategy {
+
+    @Override
+    public List<PartStatusFile> order(String fileId, List<PartStatusFile> parts) {
+        return parts.stream()
+                .sorted(Comparator.comparingInt(partStatusFile -> Integer.parseInt(partStatusFile.getFileName())))
+                .toList();
+    }
+}
@@ -0,0 +1,233 @@
+package dev.tronxi.papayaclient.peer.download;
+
+import dev.tronxi.papayaclient.peer.AskForPartFileSender;
+import dev.tronxi.papayaclient.peer.Peer;
+import dev.tronxi.papayaclient.peer.PeerMessageType;
+import dev.tronxi.papayaclient.peer.connection.PeerConnectionPool;
+import dev.tronxi.papayaclient.peer.protocol.Block;
+import dev.tronxi.papayaclient.peer.protocol.PeerMessageCodec;
+import dev.tronxi.papayaclient.persistence.FileManager;
+import dev.tronxi.papayaclient.persistence.HashGenerator;
+import dev.tronxi.papayaclient.persistence.PartHashExecutor;
+import dev.tronxi.papayaclient.persistence.hash.HashAlgorithm;
+import dev.tronxi.papayaclient.persistence.hash.PartHasher;
+import dev.tronxi.papayaclient.persistence.incoming.StagedPart;
+import dev.tronxi.papayaclient.persistence.papayafile.PapayaFile;
+import dev.tronxi.papayaclient.persistence.papayafile.PartFile;
+import dev.tronxi.papayaclient.persistence.papayastatusfile.PartPeerStatusFile;
+import dev.tronxi.papayaclient.persistence.papayastatusfile.PartStatusFile;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+@Service
+public class PartRepairService {
+
+    private static final Logger logger = Logger.getLogger(PartRepairService.class.getName());
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Value("${papaya.port}")
+    private int port;
+
+    @Value("${papaya.download.repairTimeout}")
+    private long repairTimeout;
+
+    private final Map<String, Repair> repairs = new ConcurrentHashMap<>();
+
+    private final PeerConnectionPool peerConnectionPool;
+    private final PeerMessageCodec peerMessageCodec;
+    private final PeerRequestWindows peerRequestWindows;
+    private final AskForPartFileSender askForPartFileSender;
+    private final FileManager fileManager;
+    private final HashGenerator hashGenerator;
+    private final PartHashExecutor partHashExecutor;
+
+    public PartRepairService(PeerConnectionPool peerConnectionPool, PeerMessageCodec peerMessageCodec, PeerRequestWindows peerRequestWindows, AskForPartFileSender askForPartFileSender, FileManager fileManager, HashGenerator hashGenerator, PartHashExecutor partHashExecutor) {
+        this.peerConnectionPool = peerConnectionPool;
+        this.peerMessageCodec = peerMessageCodec;
+        this.peerRequestWindows = peerRequestWindows;
+        this.askForPartFileSender = askForPartFileSender;
+        this.fileManager = fileManager;
+        this.hashGenerator = hashGenerator;
+        this.partHashExecutor = partHashExecutor;
+    }
+
+    public boolean start(Peer sender, String fileId, int partIndex, PartStatusFile partStatusFile, StagedPart stagedPart) {
+        Optional<PapayaFile> maybePapayaFile = fileManager.retrieveCachedPapayaFile(fileId);
+        if (!stagedPart.isRepairable() || maybePapayaFile.isEmpty() || maybePapayaFile.get().getBlockSize() <= 0) {
+            return false;
+        }
+        if (stagedPart.badBlocks().size() > PeerMessageCodec.maxBlocks(maybePapayaFile.get().getBlockSize())) {
+            return false;
+        }
+        List<Peer> peers = partStatusFile.getPartPeerStatusFiles().stream()
+                .map(PartPeerStatusFile::getPeer)
+                .distinct()
+                .toList();
+        HashAlgorithm hashAlgorithm = fileManager.retrievePartFile(fileId, partStatusFile.getFileName())
+                .map(PartFile::getHashAlgorithm)
+                .orElse(maybePapayaFile.get().getHashAlgorithm());
+        Repair repair = new Repair(fileId, partIndex, partStatusFile.getId(), stagedPart, hashAlgorithm, maybePapayaFile.get().getBlockSize(), peers);
+        repair.failedPeers.add(sender);
+        Repair previous = repairs.put(key(fileId, partIndex), repair);
+        if (previous != null) {
+            fileManager.discardPart(previous.stagedPart);
+        }
+        askForPartFileSender.onPartRepairing(sender, fileId, partIndex);
+        synchronized (repair) {
+            askNextPeer(repair);
+        }
+        return true;
+    }
+
+    public Optional<StagedPart> onBlocks(Peer peer, String fileId, int partIndex, List<Block> blocks) {
+        Repair repair = repairs.get(key(fileId, partIndex));
+        if (repair == null) {
+            return Optional.empty();
+        }
+        synchronized (repair) {
+            if (repairs.get(key(fileId, partIndex)) != repair || !peer.equals(repair.askedPeer)) {
+                return Optional.empty();
+            }
+            try (FileChannel fileChannel = FileChannel.open(repair.stagedPart.path(), StandardOpenOption.WRITE)) {
+                for (Block block : blocks) {
+                    if (repair.badBlocks.contains(block.index()) && isValid(repair, block)) {
+                        ByteBuffer content = block.content().duplicate();
+                        long position = (long) block.index() * repair.blockSize;
+                        while (content.hasRemaining()) {
+                            position += fileChannel.write(content, position);
+                        }
+                        repair.badBlocks.remove(block.index());
+                    }
+                }
+            } catch (IOException e) {
+                logger.severe(e.getMessage());
+                fail(repair);
+                return Optional.empty();
+            }
+            if (!repair.badBlocks.isEmpty()) {
+                logger.info("Peer " + peer.address() + ":" + peer.port() + " left " + repair.badBlocks.size() + " bad blocks in part: " + partIndex + " fileId: " + fileId);
+                peerRequestWindows.penalize(peer);
+                repair.failedPeers.add(peer);
+                askNextPeer(repair);
+                return Optional.empty();
+            }
+            repairs.remove(key(fileId, partIndex));
+            return rehash(repair);
+        }
+    }
+
+    public void cancel(String fileId, int partIndex) {
+        Repair repair = repairs.remove(key(fileId, partIndex));
+        if (repair != null) {
+            synchronized (repair) {
+                fileManager.discardPart(repair.stagedPart);
+            }
+        }
+    }
+
+    @Scheduled(fixedRateString = "${papaya.download.timerTick}")
+    public void expireRepairs() {
+        long now = System.currentTimeMillis();
+        repairs.values().forEach(repair -> {
+            synchronized (repair) {
+                if (repairs.get(key(repair.fileId, repair.partIndex)) == repair && now - repair.updateTime > repairTimeout) {
+                    logger.info("Repair expired: " + repair.partIndex + " fileId: " + repair.fileId + " peer: " + repair.askedPeer);
+                    peerRequestWindows.penalize(repair.askedPeer);
+                    repair.failedPeers.add(repair.askedPeer);
+                    askNextPeer(repair);
+                }
+            }
+        });
+    }
+
+    private void askNextPeer(Repair repair) {
+        Optional<Peer> maybePeer = repair.peers.stream()
+                .filter(peer -> !repair.failedPeers.contains(peer))
+                .min(Comparator.comparingInt(peerRequestWindows::getPenalty));
+        if (maybePeer.isEmpty()) {
+            fail(repair);
+            return;
+        }
+        Peer peer = maybePeer.get();
+        repair.askedPeer = peer;
+        repair.updateTime = System.currentTimeMillis();
+        logger.info("Asking " + peer.address() + ":" + peer.port() + " for " + repair.badBlocks.size() + " blocks of part: " + repair.partIndex + " fileId: " + repair.fileId);
+        try {
+            ByteBuffer payload = peerMessageCodec.encodePartIndexes(new ArrayList<>(repair.badBlocks));
+            peerConnectionPool.send(peer, peerMessageCodec.encode(PeerMessageType.ASK_FOR_BLOCKS, repair.fileId, repair.partIndex, port, payload));
+        } catch (IOException e) {
+            logger.severe(e.getMessage());
+            repair.failedPeers.add(peer);
+            askNextPeer(repair);
+        }
+    }
+
+    private void fail(Repair repair) {
+        logger.severe("Could not repair part: " + repair.partIndex + " fileId: " + repair.fileId);
+        repairs.remove(key(repair.fileId, repair.partIndex), repair);
+        fileManager.discardPart(repair.stagedPart);
+        askForPartFileSender.onRepairFailed(repair.partId);
+    }
+
+    private boolean isValid(Repair repair, Block block) {
+        if (block.index() >= repair.blockHashes.size()) {
+            return false;
+        }
+        PartHasher partHasher = hashGenerator.newHasher(repair.hashAlgorithm);
+        partHasher.update(block.content().duplicate());
+        return Arrays.equals(partHasher.digest(), repair.blockHashes.get(block.index()));
+    }
+
+    private Optional<StagedPart> rehash(Repair repair) {
+        try (FileChannel fileChannel = FileChannel.open(repair.stagedPart.path(), StandardOpenOption.READ)) {
+            long size = fileChannel.size();
+            String hash = partHashExecutor.hash(fileChannel, 0, size, repair.hashAlgorithm, ByteBuffer.allocate(BUFFER_SIZE));
+            return Optional.of(new StagedPart(repair.stagedPart.path(), size, hash));
+        } catch (IOException e) {
+            logger.severe(e.getMessage());
+            fileManager.discardPart(repair.stagedPart);
+            askForPartFileSender.onRepairFailed(repair.partId);
+            return Optional.empty();
+        }
+    }
+
+    private static String key(String fileId, int partIndex) {
+        return fileId + "/" + partIndex;
+    }
+
+    private static class Repair {
+        private final String fileId;
+        private final int partIndex;
+        private final Long partId;
+        private final StagedPart stagedPart;
+        private final List<byte[]> blockHashes;
+        private final Set<Integer> badBlocks;
+        private final HashAlgorithm hashAlgorithm;
+        private final int blockSize;
+        private final List<Peer> peers;
+        private final Set<Peer> failedPeers = new HashSet<>();
+        private Peer askedPeer;
+        private long updateTime;
+
+        private Repair(String fileId, int partIndex, Long partId, StagedPart stagedPart, HashAlgorithm hashAlgorithm, int blockSize, List<Peer> peers) {
+            this.fileId = fileId;
+            this.partIndex = partIndex;
+            this.partId = partId;
+            this.stagedPart = stagedPart;
+            this.blockHashes = stagedPart.blockHashes();
+            this.badBlocks = new TreeSet<>(stagedPart.badBlocks());
+            this.hashAlgorithm = hashAlgorithm;
+            this.blockSize = blockSize;
+            this.peers = peers;
+        }
+    }
+}
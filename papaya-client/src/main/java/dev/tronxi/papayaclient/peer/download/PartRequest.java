@@ -0,0 +1,6 @@
+package dev.tronxi.papayaclient.peer.download;
+
+import dev.tronxi.papayaclient.peer.Peer;
+
+public record PartRequest(String fileId, int partIndex, Long partId, Peer peer, long requestTime) {
+}
@@ -0,0 +1,202 @@
+package dev.tronxi.papayaclient.peer.download;
+
+import dev.tronxi.papayaclient.peer.Peer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class PeerRequestWindows {
+
+    private static final int WHEEL_SIZE = 1024;
+
+    private final int initialWindow;
+    private final int maxOutstandingRequests;
+    private final long fastDeliveryTime;
+    private final long initialRequestTimeout;
+    private final long minRequestTimeout;
+    private final long maxRequestTimeout;
+    private final Map<Peer, PeerWindow> windows = new ConcurrentHashMap<>();
+    private final Map<RequestKey, PartRequest> requests = new ConcurrentHashMap<>();
+    private final TimerWheel<PartRequest> timerWheel;
+
+    public PeerRequestWindows(@Value("${papaya.download.initialWindow}") int initialWindow,
+                              @Value("${papaya.download.maxOutstandingRequests}") int maxOutstandingRequests,
+                              @Value("${papaya.download.fastDeliveryTime}") long fastDeliveryTime,
+                              @Value("${papaya.download.initialRequestTimeout}") long initialRequestTimeout,
+                              @Value("${papaya.download.minRequestTimeout}") long minRequestTimeout,
+                              @Value("${papaya.download.maxRequestTimeout}") long maxRequestTimeout,
+                              @Value("${papaya.download.timerTick}") long timerTick) {
+        this.initialWindow = initialWindow;
+        this.maxOutstandingRequests = maxOutstandingRequests;
+        this.fastDeliveryTime = fastDeliveryTime;
+        this.initialRequestTimeout = initialRequestTimeout;
+        this.minRequestTimeout = minRequestTimeout;
+        this.maxRequestTimeout = maxRequestTimeout;
+        this.timerWheel = new TimerWheel<>(timerTick, WHEEL_SIZE, System.currentTimeMillis());
+    }
+
+    public boolean hasCapacity(Peer peer) {
+        return window(peer).hasCapacity();
+    }
+
+    public boolean isRequested(Peer peer, String fileId, int partIndex) {
+        return requests.containsKey(new RequestKey(fileId, partIndex, peer));
+    }
+
+    public boolean tryRequest(PartRequest partRequest) {
+        PeerWindow peerWindow = window(partRequest.peer());
+        if (!peerWindow.tryAcquire()) {
+            return false;
+        }
+        if (requests.putIfAbsent(RequestKey.of(partRequest), partRequest) != null) {
+            peerWindow.onReleased();
+            return false;
+        }
+        timerWheel.schedule(partRequest, peerWindow.timeout());
+        return true;
+    }
+
+    public void cancelRequest(PartRequest partRequest) {
+        if (requests.remove(RequestKey.of(partRequest), partRequest)) {
+            window(partRequest.peer()).onReleased();
+        }
+    }
+
+    public Optional<PartRequest> onDelivered(Peer peer, String fileId, int partIndex) {
+        PartRequest partRequest = requests.remove(new RequestKey(fileId, partIndex, peer));
+        if (partRequest == null) {
+            return Optional.empty();
+        }
+        long elapsed = System.currentTimeMillis() - partRequest.requestTime();
+        window(peer).onDelivered(elapsed, elapsed <= fastDeliveryTime);
+        return Optional.of(partRequest);
+    }
+
+    public Optional<PartRequest> onFailed(Peer peer, String fileId, int partIndex) {
+        PartRequest partRequest = requests.remove(new RequestKey(fileId, partIndex, peer));
+        if (partRequest == null) {
+            return Optional.empty();
+        }
+        window(peer).onTimeout();
+        return Optional.of(partRequest);
+    }
+
+    public List<PartRequest> releaseRequests(String fileId, int partIndex) {
+        return requests.values().stream()
+                .filter(partRequest -> partRequest.fileId().equals(fileId) && partRequest.partIndex() == partIndex)
+                .filter(partRequest -> requests.remove(RequestKey.of(partRequest), partRequest))
+                .peek(partRequest -> window(partRequest.peer()).onReleased())
+                .toList();
+    }
+
+    public List<PartRequest> expireRequests() {
+        return timerWheel.advance(System.currentTimeMillis()).stream()
+                .filter(partRequest -> requests.remove(RequestKey.of(partRequest), partRequest))
+                .peek(partRequest -> window(partRequest.peer()).onTimeout())
+                .toList();
+    }
+
+    public void penalize(Peer peer) {
+        window(peer).onPenalty();
+    }
+
+    public int getWindow(Peer peer) {
+        return window(peer).size();
+    }
+
+    public int getInFlight(Peer peer) {
+        return window(peer).inFlight();
+    }
+
+    public int getPenalty(Peer peer) {
+        return window(peer).penalty();
+    }
+
+    public long getRequestTimeout(Peer peer) {
+        return window(peer).timeout();
+    }
+
+    private PeerWindow window(Peer peer) {
+        return windows.computeIfAbsent(peer, p -> new PeerWindow(initialWindow, maxOutstandingRequests, new RttEstimator(initialRequestTimeout, minRequestTimeout, maxRequestTimeout)));
+    }
+
+    private record RequestKey(String fileId, int partIndex, Peer peer) {
+        static RequestKey of(PartRequest partRequest) {
+            return new RequestKey(partRequest.fileId(), partRequest.partIndex(), partRequest.peer());
+        }
+    }
+
+    private static class PeerWindow {
+        private final int maxWindow;
+        private final RttEstimator rttEstimator;
+        private double window;
+        private int inFlight;
+        private int penalty;
+
+        private PeerWindow(int initialWindow, int maxWindow, RttEstimator rttEstimator) {
+            this.maxWindow = maxWindow;
+            this.rttEstimator = rttEstimator;
+            this.window = Math.min(initialWindow, maxWindow);
+        }
+
+        synchronized boolean hasCapacity() {
+            return inFlight < size();
+        }
+
+        synchronized boolean tryAcquire() {
+            if (inFlight >= size()) {
+                return false;
+            }
+            inFlight++;
+            return true;
+        }
+
+        synchronized void onDelivered(long elapsed, boolean fast) {
+            inFlight = Math.max(0, inFlight - 1);
+            rttEstimator.onSample(elapsed);
+            penalty = Math.max(0, penalty - 1);
+            if (fast) {
+                window = Math.min(maxWindow, window + 1);
+            } else {
+                window = Math.min(maxWindow, window + 1 / window);
+            }
+        }
+
+        synchronized void onReleased() {
+            inFlight = Math.max(0, inFlight - 1);
+        }
+
+        synchronized void onTimeout() {
+            inFlight = Math.max(0, inFlight - 1);
+            rttEstimator.onTimeout();
+            penalty++;
+            window = Math.max(1, window / 2);
+        }
+
+        synchronized void onPenalty() {
+            penalty++;
+            window = Math.max(1, window / 2);
+        }
+
+        synchronized long timeout() {
+            return rttEstimator.getTimeout();
+        }
+
+        synchronized int inFlight() {
+            return inFlight;
+        }
+
+        synchronized int penalty() {
+            return penalty;
+        }
+
+        synchronized int size() {
+            return (int) window;
+        }
+    }
+}
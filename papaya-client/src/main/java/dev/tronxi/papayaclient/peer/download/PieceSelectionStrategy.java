@@ -0,0 +1,10 @@
+package dev.tronxi.papayaclient.peer.download;
+
+import dev.tronxi.papayaclient.persistence.papayastatusfile.PartStatusFile;
+
+import java.util.List;
+
+public interface PieceSelectionStrategy {
+
+    List<PartStatusFile> order(String fileId, List<PartStatusFile> parts);
+}
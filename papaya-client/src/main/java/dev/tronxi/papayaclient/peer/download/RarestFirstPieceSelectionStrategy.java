@@ -0,0 +1,34 @@
+package dev.tronxi.papayaclient.peer.download;
+
+import dev.tronxi.papayaclient.persistence.papayastatusfile.PartStatusFile;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Component
+@ConditionalOnProperty(name = "papaya.download.pieceSelection", havingValue = "rarest-first", matchIfMissing = true)
+public class RarestFirstPieceSelectionStrategy implements PieceSelectionStrategy {
+
+    private final SwarmState swarmState;
+
+    public RarestFirstPieceSelectionStrategy(SwarmState swarmState) {
+        this.swarmState = swarmState;
+    }
+
+    @Override
+    public List<PartStatusFile> order(String fileId, List<PartStatusFile> parts) {
+        List<PartStatusFile> ordered = new ArrayList<>(parts);
+        Collections.shuffle(ordered, ThreadLocalRandom.current());
+        ordered.sort(Comparator.comparingInt(partStatusFile -> availability(fileId, partStatusFile)));
+        return ordered;
+    }
+
+    private int availability(String fileId, PartStatusFile partStatusFile) {
+        return Math.max(swarmState.getAvailability(fileId, Integer.parseInt(partStatusFile.getFileName())), partStatusFile.getPartPeerStatusFiles().size());
+    }
+}
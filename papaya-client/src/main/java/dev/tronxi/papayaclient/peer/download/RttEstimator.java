@@ -0,0 +1,45 @@
+package dev.tronxi.papayaclient.peer.download;
+
+public class RttEstimator {
+
+    private final long minTimeout;
+    private final long maxTimeout;
+    private double srtt;
+    private double rttvar;
+    private long timeout;
+    private boolean sampled;
+
+    public RttEstimator(long initialTimeout, long minTimeout, long maxTimeout) {
+        this.minTimeout = minTimeout;
+        this.maxTimeout = maxTimeout;
+        this.timeout = clamp(initialTimeout);
+    }
+
+    public void onSample(long rtt) {
+        if (!sampled) {
+            srtt = rtt;
+            rttvar = rtt / 2.0;
+            sampled = true;
+        } else {
+            rttvar = 0.75 * rttvar + 0.25 * Math.abs(srtt - rtt);
+            srtt = 0.875 * srtt + 0.125 * rtt;
+        }
+        timeout = clamp((long) (srtt + 4 * rttvar));
+    }
+
+    public void onTimeout() {
+        timeout = clamp(timeout * 2);
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    public long getSrtt() {
+        return (long) srtt;
+    }
+
+    private long clamp(long value) {
+        return Math.max(minTimeout, Math.min(maxTimeout, value));
+    }
+}
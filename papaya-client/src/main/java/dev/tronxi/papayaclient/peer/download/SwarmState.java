@@ -0,0 +1,78 @@
+package dev.tronxi.papayaclient.peer.download;
+
+import dev.tronxi.papayaclient.peer.Peer;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class SwarmState {
+
+    private final Map<String, Map<Peer, Set<Integer>>> availability = new ConcurrentHashMap<>();
+    private final Map<Long, String> askedParts = new ConcurrentHashMap<>();
+    private final Set<PartKey> claimedParts = ConcurrentHashMap.newKeySet();
+    private final Set<String> joinedFiles = ConcurrentHashMap.newKeySet();
+
+    public void onPeerParts(String fileId, Peer peer, Collection<Integer> partIndexes) {
+        availability.computeIfAbsent(fileId, id -> new ConcurrentHashMap<>()).put(peer, Set.copyOf(partIndexes));
+    }
+
+    public int getAvailability(String fileId, int partIndex) {
+        Map<Peer, Set<Integer>> fileAvailability = availability.get(fileId);
+        if (fileAvailability == null) {
+            return 0;
+        }
+        return (int) fileAvailability.values().stream()
+                .filter(partIndexes -> partIndexes.contains(partIndex))
+                .count();
+    }
+
+    public void removePeer(Peer peer) {
+        availability.values().forEach(fileAvailability -> fileAvailability.remove(peer));
+    }
+
+    public boolean tryMarkAsked(String fileId, Long partId) {
+        return askedParts.putIfAbsent(partId, fileId) == null;
+    }
+
+    public boolean isAsked(Long partId) {
+        return askedParts.containsKey(partId);
+    }
+
+    public void clearAsked(Long partId) {
+        askedParts.remove(partId);
+    }
+
+    public boolean claim(String fileId, String partFileName) {
+        return claimedParts.add(new PartKey(fileId, partFileName));
+    }
+
+    public void releaseClaim(String fileId, String partFileName) {
+        claimedParts.remove(new PartKey(fileId, partFileName));
+    }
+
+    public boolean startJoin(String fileId) {
+        return joinedFiles.add(fileId);
+    }
+
+    public void releaseJoin(String fileId) {
+        joinedFiles.remove(fileId);
+    }
+
+    public boolean isJoined(String fileId) {
+        return joinedFiles.contains(fileId);
+    }
+
+    public void removeFile(String fileId) {
+        availability.remove(fileId);
+        askedParts.values().removeIf(fileId::equals);
+        claimedParts.removeIf(partKey -> partKey.fileId().equals(fileId));
+        joinedFiles.remove(fileId);
+    }
+
+    private record PartKey(String fileId, String partFileName) {
+    }
+}
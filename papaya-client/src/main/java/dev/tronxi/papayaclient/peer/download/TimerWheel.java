@@ -0,0 +1,54 @@
+package dev.tronxi.papayaclient.peer.download;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+public class TimerWheel<T> {
+
+    private final long tickDuration;
+    private final List<LinkedList<Timeout<T>>> slots;
+    private final int mask;
+    private long currentTick;
+    private long lastAdvanceTime;
+
+    public TimerWheel(long tickDuration, int wheelSize, long startTime) {
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Wheel size must be a power of two: " + wheelSize);
+        }
+        this.tickDuration = tickDuration;
+        this.mask = wheelSize - 1;
+        this.slots = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            slots.add(new LinkedList<>());
+        }
+        this.lastAdvanceTime = startTime;
+    }
+
+    public synchronized void schedule(T value, long delay) {
+        long ticks = Math.max(1, (delay + tickDuration - 1) / tickDuration);
+        long deadline = currentTick + ticks;
+        slots.get((int) (deadline & mask)).add(new Timeout<>(deadline, value));
+    }
+
+    public synchronized List<T> advance(long now) {
+        List<T> expired = new ArrayList<>();
+        while (now - lastAdvanceTime >= tickDuration) {
+            lastAdvanceTime += tickDuration;
+            currentTick++;
+            Iterator<Timeout<T>> iterator = slots.get((int) (currentTick & mask)).iterator();
+            while (iterator.hasNext()) {
+                Timeout<T> timeout = iterator.next();
+                if (timeout.deadline() <= currentTick) {
+                    expired.add(timeout.value());
+                    iterator.remove();
+                }
+            }
+        }
+        return expired;
+    }
+
+    private record Timeout<T>(long deadline, T value) {
+    }
+}
@@ -0,0 +1,126 @@
+package dev.tronxi.papayaclient.peer.handlers;
+
+import dev.tronxi.papayaclient.peer.Peer;
+import dev.tronxi.papayaclient.peer.PeerMessageType;
+import dev.tronxi.papayaclient.peer.connection.PeerConnectionPool;
+import dev.tronxi.papayaclient.peer.protocol.Block;
+import dev.tronxi.papayaclient.peer.protocol.PeerMessage;
+import dev.tronxi.papayaclient.peer.protocol.PeerMessageCodec;
+import dev.tronxi.papayaclient.peer.services.TransferLimiter;
+import dev.tronxi.papayaclient.persistence.FileManager;
+import dev.tronxi.papayaclient.persistence.papayafile.PapayaFile;
+import dev.tronxi.papayaclient.persistence.storage.MappedPartCache;
+import dev.tronxi.papayaclient.persistence.storage.PartLocation;
+import org.springframework.stereotype.Service;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.logging.Logger;
+
+@Service
+public class AskForBlocksHandler extends Handler {
+
+    private static final Logger logger = Logger.getLogger(AskForBlocksHandler.class.getName());
+
+    private final PeerConnectionPool peerConnectionPool;
+    private final PeerMessageCodec peerMessageCodec;
+    private final TransferLimiter transferLimiter;
+    private final MappedPartCache mappedPartCache;
+
+    protected AskForBlocksHandler(FileManager fileManager, PeerConnectionPool peerConnectionPool, PeerMessageCodec peerMessageCodec, TransferLimiter transferLimiter, MappedPartCache mappedPartCache) {
+        super(fileManager);
+        this.peerConnectionPool = peerConnectionPool;
+        this.peerMessageCodec = peerMessageCodec;
+        this.transferLimiter = transferLimiter;
+        this.mappedPartCache = mappedPartCache;
+    }
+
+    @Override
+    public String handle(PeerMessage message) {
+        Peer peer = message.sender();
+        List<Integer> blockIndexes;
+        try {
+            blockIndexes = peerMessageCodec.decodePartIndexes(message.payload());
+        } catch (IOException e) {
+            logger.severe(e.getMessage());
+            return "From: " + peer.address() + ":" + peer.port() + " Invalid AskForBlocks with fileId: " + message.fileId();
+        }
+        sendBlocks(peer, message.fileId(), message.partIndex(), blockIndexes);
+        return "From: " + peer.address() + ":" + peer.port() + " AskForBlocks with fileId: " + message.fileId() + " Part: " + message.partIndex() + " blocks: " + blockIndexes.size();
+    }
+
+    private void sendBlocks(Peer peer, String fileId, int partIndex, List<Integer> blockIndexes) {
+        Optional<PapayaFile> maybePapayaFile = fileManager.retrieveCachedPapayaFile(fileId);
+        if (maybePapayaFile.isEmpty() || maybePapayaFile.get().getBlockSize() <= 0) {
+            logger.severe("Blocks not available for: " + fileId);
+            return;
+        }
+        Optional<PartLocation> maybePartLocation = fileManager.locatePart(fileId, String.valueOf(partIndex));
+        if (maybePartLocation.isEmpty()) {
+            logger.severe("Part not found: " + partIndex + " fileId: " + fileId);
+            return;
+        }
+        int blockSize = maybePapayaFile.get().getBlockSize();
+        List<Integer> servedIndexes = blockIndexes.stream()
+                .limit(PeerMessageCodec.maxBlocks(blockSize))
+                .toList();
+        PartLocation partLocation = maybePartLocation.get();
+        try {
+            transferLimiter.acquireUpload();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            Optional<ByteBuffer> maybeRegion = mappedPartCache.map(partLocation);
+            List<Block> blocks = maybeRegion.isPresent()
+                    ? sliceBlocks(maybeRegion.get(), servedIndexes, blockSize)
+                    : readBlocks(partLocation, servedIndexes, blockSize);
+            peerConnectionPool.send(peer, peerMessageCodec.encode(PeerMessageType.BLOCKS, fileId, partIndex, port, peerMessageCodec.encodeBlocks(blocks)));
+        } catch (IOException e) {
+            logger.severe(e.getMessage());
+        } finally {
+            transferLimiter.releaseUpload();
+        }
+    }
+
+    private List<Block> sliceBlocks(ByteBuffer region, List<Integer> blockIndexes, int blockSize) {
+        List<Block> blocks = new ArrayList<>();
+        for (int blockIndex : blockIndexes) {
+            long offset = (long) blockIndex * blockSize;
+            if (blockIndex < 0 || offset >= region.capacity()) {
+                continue;
+            }
+            blocks.add(new Block(blockIndex, region.slice((int) offset, (int) Math.min(blockSize, region.capacity() - offset))));
+        }
+        return blocks;
+    }
+
+    private List<Block> readBlocks(PartLocation partLocation, List<Integer> blockIndexes, int blockSize) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(partLocation.path(), StandardOpenOption.READ)) {
+            List<Block> blocks = new ArrayList<>();
+            for (int blockIndex : blockIndexes) {
+                long offset = (long) blockIndex * blockSize;
+                if (blockIndex < 0 || offset >= partLocation.size()) {
+                    continue;
+                }
+                ByteBuffer content = ByteBuffer.allocate((int) Math.min(blockSize, partLocation.size() - offset));
+                long position = partLocation.position() + offset;
+                while (content.hasRemaining()) {
+                    int read = fileChannel.read(content, position + content.position());
+                    if (read == -1) {
+                        throw new EOFException("Unexpected end of file at " + (position + content.position()));
+                    }
+                }
+                blocks.add(new Block(blockIndex, content.flip()));
+            }
+            return blocks;
+        }
+    }
+}
@@ -1,17 +1,22 @@
 package dev.tronxi.papayaclient.peer.handlers;
 
 import dev.tronxi.papayaclient.persistence.FileManager;
+import dev.tronxi.papayaclient.persistence.hash.MerkleTree;
+import dev.tronxi.papayaclient.persistence.storage.MappedPartCache;
+import dev.tronxi.papayaclient.persistence.storage.PartLocation;
 import dev.tronxi.papayaclient.peer.Peer;
 import dev.tronxi.papayaclient.peer.PeerMessageType;
+import dev.tronxi.papayaclient.peer.connection.PeerConnectionPool;
+import dev.tronxi.papayaclient.peer.protocol.PeerMessage;
+import dev.tronxi.papayaclient.peer.protocol.PeerMessageCodec;
+import dev.tronxi.papayaclient.peer.services.TransferLimiter;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.net.Socket;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 @Service
@@ -19,62 +24,88 @@ public class AskForPartFileHandler extends Handler {
 
     private static final Logger logger = Logger.getLogger(AskForPartFileHandler.class.getName());
 
-    protected AskForPartFileHandler(FileManager fileManager) {
+    private final PeerConnectionPool peerConnectionPool;
+    private final PeerMessageCodec peerMessageCodec;
+    private final TransferLimiter transferLimiter;
+    private final MappedPartCache mappedPartCache;
+    private final Set<UploadRequest> pendingUploads = ConcurrentHashMap.newKeySet();
+
+    protected AskForPartFileHandler(FileManager fileManager, PeerConnectionPool peerConnectionPool, PeerMessageCodec peerMessageCodec, TransferLimiter transferLimiter, MappedPartCache mappedPartCache) {
         super(fileManager);
+        this.peerConnectionPool = peerConnectionPool;
+        this.peerMessageCodec = peerMessageCodec;
+        this.transferLimiter = transferLimiter;
+        this.mappedPartCache = mappedPartCache;
     }
 
     @Override
-    public String handle(Socket clientSocket, byte[] receivedData) {
-        String message = "From: " + clientSocket.getInetAddress();
-        try {
-            ByteArrayOutputStream fileId = new ByteArrayOutputStream();
-            fileId.write(Arrays.copyOfRange(receivedData, 1, 33));
-            ByteArrayOutputStream part = new ByteArrayOutputStream();
-            int i = 33;
-            int charAtIndex;
-            do {
-                charAtIndex = (char) receivedData[i];
-                if (charAtIndex != '#') {
-                    part.write(receivedData[i]);
-                }
-                i++;
-            } while (charAtIndex != '#');
-            ByteArrayOutputStream port = new ByteArrayOutputStream();
-            do {
-                charAtIndex = (char) receivedData[i];
-                if (charAtIndex != '#') {
-                    port.write(receivedData[i]);
-                }
-                i++;
-            } while (charAtIndex != '#');
-            message += ":" + port + " AskForPartFile with fileId: " + fileId + " Part: " + part;
-            sendPartFile(clientSocket, fileId, part, port);
-        } catch (IOException e) {
-            logger.severe(e.getMessage());
-        }
-        return message;
+    public String handle(PeerMessage message) {
+        Peer peer = message.sender();
+        UploadRequest uploadRequest = new UploadRequest(peer, message.fileId(), message.partIndex());
+        pendingUploads.add(uploadRequest);
+        sendPartFile(uploadRequest);
+        return "From: " + peer.address() + ":" + peer.port() + " AskForPartFile with fileId: " + message.fileId() + " Part: " + message.partIndex();
     }
 
-    private void sendPartFile(Socket clientSocket, ByteArrayOutputStream fileId, ByteArrayOutputStream part, ByteArrayOutputStream port) {
-        logger.info("Sending part: " + part.toString() + " fileId: " + fileId.toString());
-        Path partFilePath = storePath.resolve(fileId.toString()).resolve(part.toString());
-        if (partFilePath.toFile().exists()) {
-            Peer peer = new Peer(clientSocket.getInetAddress().getHostAddress(), Integer.parseInt(port.toString()));
-            try (Socket socket = new Socket(peer.address(), peer.port());
-                 OutputStream outputStream = socket.getOutputStream()) {
+    public boolean cancel(Peer peer, String fileId, int partIndex) {
+        return pendingUploads.remove(new UploadRequest(peer, fileId, partIndex));
+    }
 
-                ByteArrayOutputStream dataStream = new ByteArrayOutputStream();
-                dataStream.write(PeerMessageType.PART_FILE.getValue());
-                dataStream.write(fileId.toString().getBytes());
-                dataStream.write(part.toString().getBytes());
-                dataStream.write("#".getBytes());
-                dataStream.write(Files.readAllBytes(partFilePath));
-                outputStream.write(dataStream.toByteArray());
+    private void sendPartFile(UploadRequest uploadRequest) {
+        Peer peer = uploadRequest.peer();
+        String fileId = uploadRequest.fileId();
+        int partIndex = uploadRequest.partIndex();
+        logger.info("Sending part: " + partIndex + " fileId: " + fileId);
+        Optional<PartLocation> maybePartLocation = fileManager.locatePart(fileId, String.valueOf(partIndex));
+        if (maybePartLocation.isPresent()) {
+            PartLocation partLocation = maybePartLocation.get();
+            try {
+                transferLimiter.acquireUpload();
+            } catch (InterruptedException e) {
+                pendingUploads.remove(uploadRequest);
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                if (!pendingUploads.remove(uploadRequest)) {
+                    logger.info("Upload cancelled: " + partIndex + " fileId: " + fileId);
+                    return;
+                }
+                Optional<ByteBuffer> maybeBlockHashes = encodeBlockHashes(fileId, String.valueOf(partIndex));
+                if (maybeBlockHashes.isEmpty()) {
+                    logger.severe("Block hashes not available: " + partIndex + " fileId: " + fileId);
+                    return;
+                }
+                ByteBuffer blockHashes = maybeBlockHashes.get();
+                ByteBuffer header = peerMessageCodec.encodeHeader(PeerMessageType.PART_FILE, fileId, partIndex, port, (int) (blockHashes.remaining() + partLocation.size()));
+                ByteBuffer prefix = ByteBuffer.allocate(header.remaining() + blockHashes.remaining()).put(header).put(blockHashes).flip();
+                Optional<ByteBuffer> maybeRegion = mappedPartCache.map(partLocation);
+                if (maybeRegion.isPresent()) {
+                    peerConnectionPool.send(peer, prefix, maybeRegion.get());
+                } else {
+                    peerConnectionPool.sendFile(peer, prefix, partLocation.path(), partLocation.position(), partLocation.size());
+                }
             } catch (IOException e) {
                 logger.severe(e.getMessage());
+            } finally {
+                transferLimiter.releaseUpload();
             }
         } else {
-            logger.severe("File not found: " + partFilePath);
+            pendingUploads.remove(uploadRequest);
+            logger.severe("Part not found: " + partIndex + " fileId: " + fileId);
         }
     }
+
+    private Optional<ByteBuffer> encodeBlockHashes(String fileId, String partFileName) {
+        boolean hasMerkleRoot = fileManager.retrievePartFile(fileId, partFileName)
+                .map(partFile -> partFile.getMerkleRoot() != null)
+                .orElse(false);
+        if (!hasMerkleRoot) {
+            return Optional.of(ByteBuffer.allocate(0));
+        }
+        return fileManager.retrieveBlockHashes(fileId, partFileName).map(MerkleTree::encode);
+    }
+
+    private record UploadRequest(Peer peer, String fileId, int partIndex) {
+    }
 }
@@ -0,0 +1,44 @@
+package dev.tronxi.papayaclient.peer.handlers;
+
+import dev.tronxi.papayaclient.peer.Peer;
+import dev.tronxi.papayaclient.peer.download.PartRepairService;
+import dev.tronxi.papayaclient.peer.protocol.Block;
+import dev.tronxi.papayaclient.peer.protocol.PeerMessage;
+import dev.tronxi.papayaclient.peer.protocol.PeerMessageCodec;
+import dev.tronxi.papayaclient.persistence.FileManager;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.logging.Logger;
+
+@Service
+public class BlocksHandler extends Handler {
+
+    private static final Logger logger = Logger.getLogger(BlocksHandler.class.getName());
+
+    private final PeerMessageCodec peerMessageCodec;
+    private final PartRepairService partRepairService;
+    private final PartFileHandler partFileHandler;
+
+    protected BlocksHandler(FileManager fileManager, PeerMessageCodec peerMessageCodec, PartRepairService partRepairService, PartFileHandler partFileHandler) {
+        super(fileManager);
+        this.peerMessageCodec = peerMessageCodec;
+        this.partRepairService = partRepairService;
+        this.partFileHandler = partFileHandler;
+    }
+
+    @Override
+    public String handle(PeerMessage message) {
+        Peer peer = message.sender();
+        try {
+            List<Block> blocks = peerMessageCodec.decodeBlocks(message.payload());
+            partRepairService.onBlocks(peer, message.fileId(), message.partIndex(), blocks)
+                    .ifPresent(stagedPart -> partFileHandler.handleRepaired(peer, message.fileId(), message.partIndex(), stagedPart));
+            return "From: " + peer.address() + ":" + peer.port() + " Blocks with fileId: " + message.fileId() + " Part: " + message.partIndex() + " blocks: " + blocks.size();
+        } catch (IOException e) {
+            logger.severe(e.getMessage());
+            return "From: " + peer.address() + ":" + peer.port() + " Invalid blocks with fileId: " + message.fileId();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package dev.tronxi.papayaclient.peer.handlers;
+
+import dev.tronxi.papayaclient.peer.Peer;
+import dev.tronxi.papayaclient.peer.protocol.PeerMessage;
+import dev.tronxi.papayaclient.persistence.FileManager;
+import org.springframework.stereotype.Service;
+
+@Service
+public class CancelHandler extends Handler {
+
+    private final AskForPartFileHandler askForPartFileHandler;
+
+    protected CancelHandler(FileManager fileManager, AskForPartFileHandler askForPartFileHandler) {
+        super(fileManager);
+        this.askForPartFileHandler = askForPartFileHandler;
+    }
+
+    @Override
+    public String handle(PeerMessage message) {
+        Peer peer = message.sender();
+        boolean cancelled = askForPartFileHandler.cancel(peer, message.fileId(), message.partIndex());
+        return "From: " + peer.address() + ":" + peer.port() + " Cancel with fileId: " + message.fileId() + " Part: " + message.partIndex() + " cancelled: " + cancelled;
+    }
+}
@@ -1,9 +1,11 @@
 package dev.tronxi.papayaclient.peer.handlers;
 
+import dev.tronxi.papayaclient.peer.protocol.PeerMessage;
 import dev.tronxi.papayaclient.persistence.FileManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 
-import java.net.Socket;
 import java.nio.file.Path;
 import java.util.concurrent.*;
 
@@ -11,6 +13,10 @@ public abstract class Handler {
     @Value("${papaya.port}")
     protected int port;
 
+    @Autowired
+    @Qualifier("handlerExecutor")
+    private ExecutorService handlerExecutor;
+
     protected final Path storePath;
 
     protected final FileManager fileManager;
@@ -21,10 +27,10 @@ public abstract class Handler {
 
     }
 
-    public CompletableFuture<String> handleInNewThread(Socket clientSocket, byte[] receivedData) {
-        return CompletableFuture.supplyAsync(() -> handle(clientSocket, receivedData));
+    public CompletableFuture<String> handleInNewThread(PeerMessage message) {
+        return CompletableFuture.supplyAsync(() -> handle(message), handlerExecutor);
 
     }
 
-    public abstract String handle(Socket clientSocket, byte[] receivedData);
+    public abstract String handle(PeerMessage message);
 }
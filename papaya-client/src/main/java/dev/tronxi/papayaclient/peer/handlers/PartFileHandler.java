@@ -1,91 +1,117 @@
 package dev.tronxi.papayaclient.peer.handlers;
 
 import dev.tronxi.papayaclient.persistence.FileManager;
-import dev.tronxi.papayaclient.persistence.HashGenerator;
+import dev.tronxi.papayaclient.persistence.incoming.StagedPart;
 import dev.tronxi.papayaclient.persistence.papayastatusfile.PapayaStatus;
 import dev.tronxi.papayaclient.persistence.papayastatusfile.PapayaStatusFile;
 import dev.tronxi.papayaclient.peer.AskForPartFileSender;
-import jakarta.transaction.Transactional;
+import dev.tronxi.papayaclient.peer.Peer;
+import dev.tronxi.papayaclient.peer.download.PartRepairService;
+import dev.tronxi.papayaclient.peer.download.SwarmState;
+import dev.tronxi.papayaclient.peer.protocol.PeerMessage;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.net.Socket;
 import java.nio.file.Path;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Optional;
 import java.util.logging.Logger;
 
 @Service
 public class PartFileHandler extends Handler {
     private static final Logger logger = Logger.getLogger(PartFileHandler.class.getName());
-    private final HashGenerator hashGenerator;
     private final AskForPartFileSender askForPartFileSender;
-    private static final Map<String, PapayaStatus> filesJoined = new HashMap<>();
+    private final PartRepairService partRepairService;
+    private final SwarmState swarmState;
 
-    protected PartFileHandler(FileManager fileManager, HashGenerator hashGenerator, AskForPartFileSender askForPartFileSender) {
+    protected PartFileHandler(FileManager fileManager, AskForPartFileSender askForPartFileSender, PartRepairService partRepairService, SwarmState swarmState) {
         super(fileManager);
         this.fileManager.addDeletedPapayaStatusFileFunction((papayaStatusFile -> {
-            filesJoined.remove(papayaStatusFile.getFileId());
+            swarmState.removeFile(papayaStatusFile.getFileId());
+            return null;
+        }));
+        this.fileManager.addGeneratedPapayaStatusFileFunction((papayaStatusFile -> {
+            releaseIncomplete(papayaStatusFile);
             return null;
         }));
-        this.hashGenerator = hashGenerator;
         this.askForPartFileSender = askForPartFileSender;
+        this.partRepairService = partRepairService;
+        this.swarmState = swarmState;
     }
 
     @Override
-    @Transactional
-    public String handle(Socket clientSocket, byte[] receivedData) {
-        String message;
-        ByteArrayOutputStream fileId = new ByteArrayOutputStream();
-        try {
-            logger.info("Receiving part file...");
-            fileId.write(Arrays.copyOfRange(receivedData, 1, 33));
-            ByteArrayOutputStream partFileName = new ByteArrayOutputStream();
-            int i = 33;
-            char charAtIndex;
-            do {
-                charAtIndex = (char) receivedData[i];
-                if (charAtIndex != '#') {
-                    partFileName.write(receivedData[i]);
-                }
-                i++;
-            } while (charAtIndex != '#');
-            ByteArrayOutputStream outputStreamWithoutHeaders = new ByteArrayOutputStream();
-            outputStreamWithoutHeaders.write(Arrays.copyOfRange(receivedData, i, receivedData.length));
-            Optional<PapayaStatusFile> maybePapayaStatusFile = fileManager.retrievePapayaStatusFileFromFile(fileId.toString());
-            if (maybePapayaStatusFile.isPresent()) {
-                PapayaStatusFile statusFile = maybePapayaStatusFile.get();
-                statusFile.getPartStatusFiles().stream().filter(partStatusFile -> partStatusFile.getFileName().equals(partFileName.toString())).findFirst().ifPresent(partStatusFile -> {
-                    String hash = hashGenerator.generateHash(outputStreamWithoutHeaders.toByteArray());
-                    if (hash.equals(partStatusFile.getFileHash())) {
-                        fileManager.writePart(fileId.toString(), partFileName.toString(), outputStreamWithoutHeaders);
-                        partStatusFile.setStatus(PapayaStatus.COMPLETE);
-                        fileManager.savePartStatusFile(statusFile, partStatusFile);
-                        if (statusFile.getStatus() == PapayaStatus.COMPLETE) {
-                            if (!filesJoined.containsKey(statusFile.getFileId())) {
-                                filesJoined.put(statusFile.getFileId(), PapayaStatus.JOINED);
-                                Optional<Path> maybePath = fileManager.joinStore(statusFile);
-                                maybePath.ifPresentOrElse((path -> logger.info("File downloaded: " + path)), () -> logger.severe("Error "));
-                            }
+    public String handle(PeerMessage message) {
+        logger.info("Receiving part file...");
+        receive(message.sender(), message.fileId(), message.partIndex(), message.stagedPart(), false);
+        return "From: " + message.sender().address() + " FileId: " + message.fileId() + " : Part: " + message.partFileName() + " Content: " + message.stagedPart().size();
+    }
+
+    public void handleRepaired(Peer sender, String fileId, int partIndex, StagedPart stagedPart) {
+        logger.info("Receiving repaired part file...");
+        receive(sender, fileId, partIndex, stagedPart, true);
+    }
+
+    private void receive(Peer sender, String fileId, int partIndex, StagedPart stagedPart, boolean repaired) {
+        String partFileName = String.valueOf(partIndex);
+        Optional<PapayaStatusFile> maybePapayaStatusFile = fileManager.retrievePapayaStatusFileFromFile(fileId);
+        if (maybePapayaStatusFile.isPresent()) {
+            PapayaStatusFile statusFile = maybePapayaStatusFile.get();
+            statusFile.getPartStatusFiles().stream()
+                    .filter(partStatusFile -> partStatusFile.getFileName().equals(partFileName))
+                    .filter(partStatusFile -> !statusFile.isComplete(partFileName))
+                    .findFirst().ifPresentOrElse(partStatusFile -> {
+                boolean valid = stagedPart.hash().equals(partStatusFile.getFileHash());
+                if (valid) {
+                    askForPartFileSender.onPartReceived(sender, fileId, partIndex, true);
+                    if (!swarmState.claim(fileId, partFileName)) {
+                        logger.info("Part already received: " + fileId + "/" + partFileName);
+                        fileManager.discardPart(stagedPart);
+                        return;
+                    }
+                    if (!fileManager.commitPart(fileId, partFileName, stagedPart)) {
+                        swarmState.releaseClaim(fileId, partFileName);
+                        return;
+                    }
+                    partRepairService.cancel(fileId, partIndex);
+                    statusFile.markComplete(partStatusFile);
+                    fileManager.savePartStatusFile(statusFile, partStatusFile);
+                    if (statusFile.getStatus() == PapayaStatus.COMPLETE) {
+                        if (swarmState.startJoin(statusFile.getFileId())) {
+                            Optional<Path> maybePath = fileManager.joinStore(statusFile);
+                            maybePath.ifPresentOrElse((path -> logger.info("File downloaded: " + path)), () -> {
+                                logger.severe("Join failed for fileId: " + fileId + ", it will be resumed on next start");
+                                swarmState.releaseJoin(fileId);
+                            });
                         }
-                    } else {
-                        logger.severe("Invalid hash");
                     }
-                });
-                if (statusFile.getStatus() != PapayaStatus.COMPLETE && !filesJoined.containsKey(statusFile.getFileId())) {
-                    askForPartFileSender.send(statusFile);
+                } else if (!repaired && partRepairService.start(sender, fileId, partIndex, partStatusFile, stagedPart)) {
+                    logger.info("Peer " + sender.address() + ":" + sender.port() + " sent " + stagedPart.badBlocks().size() + " bad blocks in part: " + partFileName + " fileId: " + fileId);
+                } else {
+                    logger.severe("Invalid hash");
+                    askForPartFileSender.onPartReceived(sender, fileId, partIndex, false);
+                    if (repaired) {
+                        askForPartFileSender.onRepairFailed(partStatusFile.getId());
+                    }
+                    fileManager.discardPart(stagedPart);
                 }
-            } else {
-                logger.severe("Could not find PapayaStatusFile for " + fileId);
+            }, () -> {
+                askForPartFileSender.onPartReceived(sender, fileId, partIndex, true);
+                fileManager.discardPart(stagedPart);
+            });
+            if (statusFile.getStatus() != PapayaStatus.COMPLETE && !swarmState.isJoined(statusFile.getFileId())) {
+                askForPartFileSender.send(statusFile);
             }
-            message = "From: " + clientSocket.getInetAddress() + " FileId: " + fileId + " : Part: " + partFileName + " Content: " + outputStreamWithoutHeaders.size();
-            return message;
-        } catch (IOException e) {
-            logger.severe(e.getMessage());
-            throw new RuntimeException(e);
+        } else {
+            logger.severe("Could not find PapayaStatusFile for " + fileId);
+            fileManager.discardPart(stagedPart);
+        }
+    }
+
+    private void releaseIncomplete(PapayaStatusFile papayaStatusFile) {
+        String fileId = papayaStatusFile.getFileId();
+        papayaStatusFile.getPartStatusFiles().stream()
+                .filter(partStatusFile -> !papayaStatusFile.isComplete(partStatusFile.getFileName()))
+                .forEach(partStatusFile -> swarmState.releaseClaim(fileId, partStatusFile.getFileName()));
+        if (papayaStatusFile.getStatus() != PapayaStatus.COMPLETE) {
+            swarmState.releaseJoin(fileId);
         }
     }
 }
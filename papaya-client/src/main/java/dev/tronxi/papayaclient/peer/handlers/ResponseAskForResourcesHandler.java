@@ -4,13 +4,12 @@ import dev.tronxi.papayaclient.persistence.FileManager;
 import dev.tronxi.papayaclient.persistence.papayastatusfile.*;
 import dev.tronxi.papayaclient.peer.AskForPartFileSender;
 import dev.tronxi.papayaclient.peer.Peer;
+import dev.tronxi.papayaclient.peer.download.SwarmState;
+import dev.tronxi.papayaclient.peer.protocol.PeerMessage;
+import dev.tronxi.papayaclient.peer.protocol.PeerMessageCodec;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.net.Socket;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.logging.Logger;
@@ -21,50 +20,35 @@ public class ResponseAskForResourcesHandler extends Handler {
     private static final Logger logger = Logger.getLogger(ResponseAskForResourcesHandler.class.getName());
 
     private final AskForPartFileSender askForPartFileSender;
+    private final PeerMessageCodec peerMessageCodec;
+    private final SwarmState swarmState;
 
 
-    protected ResponseAskForResourcesHandler(FileManager fileManager, AskForPartFileSender askForPartFileSender) {
+    protected ResponseAskForResourcesHandler(FileManager fileManager, AskForPartFileSender askForPartFileSender, PeerMessageCodec peerMessageCodec, SwarmState swarmState) {
         super(fileManager);
         this.askForPartFileSender = askForPartFileSender;
+        this.peerMessageCodec = peerMessageCodec;
+        this.swarmState = swarmState;
     }
 
     @Override
-    public String handle(Socket clientSocket, byte[] receivedData) {
-        String message = "From: " + clientSocket.getInetAddress();
-        ByteArrayOutputStream fileId = new ByteArrayOutputStream();
+    public String handle(PeerMessage message) {
+        Peer peer = message.sender();
+        List<Integer> partIndexes;
         try {
-            fileId.write(Arrays.copyOfRange(receivedData, 1, 33));
-            int i = 33;
-            List<String> completedParts = new ArrayList<>();
-            ByteArrayOutputStream port = new ByteArrayOutputStream();
-            int charAtIndex;
-            do {
-                charAtIndex = (char) receivedData[i];
-                if (charAtIndex != '#') {
-                    port.write(receivedData[i]);
-                }
-                i++;
-            } while (charAtIndex != '#');
-            do {
-                ByteArrayOutputStream part = new ByteArrayOutputStream();
-                do {
-                    charAtIndex = (char) receivedData[i];
-                    if (charAtIndex != '#') {
-                        part.write(receivedData[i]);
-                    }
-                    i++;
-                } while (charAtIndex != '#');
-                completedParts.add(part.toString());
-            } while (i < receivedData.length);
-            logger.info("found: " + completedParts.size() + " parts");
-            Peer peer = new Peer(clientSocket.getInetAddress().getHostAddress(), Integer.parseInt(port.toString()));
-            Optional<PapayaStatusFile> maybePapayaStatusFileUpdated = updateStatus(fileId.toString(), peer, completedParts);
-            maybePapayaStatusFileUpdated.ifPresent(askForPartFileSender::send);
-            message += ":" + port + " ResponseAskForResources with fileId: " + fileId + " parts: " + completedParts.size();
+            partIndexes = peerMessageCodec.decodePartIndexes(message.payload());
         } catch (IOException e) {
             logger.severe(e.getMessage());
+            return "From: " + peer.address() + ":" + peer.port() + " Invalid ResponseAskForResources with fileId: " + message.fileId();
         }
-        return message;
+        swarmState.onPeerParts(message.fileId(), peer, partIndexes);
+        List<String> completedParts = partIndexes.stream()
+                .map(String::valueOf)
+                .toList();
+        logger.info("found: " + completedParts.size() + " parts");
+        Optional<PapayaStatusFile> maybePapayaStatusFileUpdated = updateStatus(message.fileId(), peer, completedParts);
+        maybePapayaStatusFileUpdated.ifPresent(askForPartFileSender::send);
+        return "From: " + peer.address() + ":" + peer.port() + " ResponseAskForResources with fileId: " + message.fileId() + " parts: " + completedParts.size();
     }
 
     private Optional<PapayaStatusFile> updateStatus(String fileId, Peer peer, List<String> completedParts) {
@@ -75,7 +59,7 @@ public class ResponseAskForResourcesHandler extends Handler {
             boolean statusChanged = false;
             for (PartStatusFile partStatusFile : papayaStatusFile.getPartStatusFiles()) {
                 if (completedParts.contains(partStatusFile.getFileName())) {
-                    if (partStatusFile.getStatus().equals(PapayaStatus.INCOMPLETE)) {
+                    if (!papayaStatusFile.isComplete(partStatusFile.getFileName())) {
                         boolean peerExist = false;
                         for (PartPeerStatusFile partPeerStatusFile : partStatusFile.getPartPeerStatusFiles()) {
                             if (partPeerStatusFile.getPeer().equals(peer)) {
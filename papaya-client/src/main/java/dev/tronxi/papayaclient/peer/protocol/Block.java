@@ -0,0 +1,6 @@
+package dev.tronxi.papayaclient.peer.protocol;
+
+import java.nio.ByteBuffer;
+
+public record Block(int index, ByteBuffer content) {
+}
@@ -0,0 +1,19 @@
+package dev.tronxi.papayaclient.peer.protocol;
+
+import dev.tronxi.papayaclient.peer.Peer;
+import dev.tronxi.papayaclient.peer.PeerMessageType;
+import dev.tronxi.papayaclient.persistence.incoming.StagedPart;
+
+import java.nio.ByteBuffer;
+
+public record PeerMessage(PeerMessageType type, String fileId, int partIndex, Peer sender, ByteBuffer payload,
+                          StagedPart stagedPart) {
+
+    public PeerMessage(PeerMessageType type, String fileId, int partIndex, Peer sender, ByteBuffer payload) {
+        this(type, fileId, partIndex, sender, payload, null);
+    }
+
+    public String partFileName() {
+        return String.valueOf(partIndex);
+    }
+}
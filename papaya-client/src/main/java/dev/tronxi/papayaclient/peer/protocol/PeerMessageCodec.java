@@ -0,0 +1,215 @@
+package dev.tronxi.papayaclient.peer.protocol;
+
+import dev.tronxi.papayaclient.peer.PeerMessageType;
+import org.springframework.stereotype.Component;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+@Component
+public class PeerMessageCodec {
+
+    public static final int VERSION = 1;
+    public static final int FILE_ID_LENGTH = 32;
+    public static final int MAX_HEADER_LENGTH = 2 + FILE_ID_LENGTH + 5 + 2 + 5;
+    public static final int MAX_PAYLOAD_LENGTH = 256 * 1024 * 1024;
+    public static final int MAX_CONTROL_PAYLOAD_LENGTH = 4 * 1024 * 1024;
+    private static final int BLOCK_OVERHEAD = 10;
+
+    public static int maxPayloadLength(PeerMessageType type) {
+        return switch (type) {
+            case PART_FILE -> MAX_PAYLOAD_LENGTH;
+            case RESPONSE_ASK_FOR_RESOURCES, ASK_FOR_BLOCKS, BLOCKS -> MAX_CONTROL_PAYLOAD_LENGTH;
+            case ASK_FOR_RESOURCES, ASK_FOR_PART_FILE, CANCEL, INVALID -> 0;
+        };
+    }
+
+    public static int maxBlocks(int blockSize) {
+        return MAX_CONTROL_PAYLOAD_LENGTH / (blockSize + BLOCK_OVERHEAD);
+    }
+
+    public ByteBuffer encode(PeerMessageType type, String fileId, int partIndex, int port, ByteBuffer payload) {
+        ByteBuffer frame = ByteBuffer.allocate(MAX_HEADER_LENGTH + payload.remaining());
+        writeHeader(frame, type, fileId, partIndex, port, payload.remaining());
+        frame.put(payload.duplicate());
+        return frame.flip();
+    }
+
+    public ByteBuffer encode(PeerMessageType type, String fileId, int partIndex, int port) {
+        return encode(type, fileId, partIndex, port, ByteBuffer.allocate(0));
+    }
+
+    public ByteBuffer encodeHeader(PeerMessageType type, String fileId, int partIndex, int port, int payloadLength) {
+        ByteBuffer header = ByteBuffer.allocate(MAX_HEADER_LENGTH);
+        writeHeader(header, type, fileId, partIndex, port, payloadLength);
+        return header.flip();
+    }
+
+    private void writeHeader(ByteBuffer buffer, PeerMessageType type, String fileId, int partIndex, int port, int payloadLength) {
+        byte[] fileIdBytes = fileId.getBytes(StandardCharsets.US_ASCII);
+        if (fileIdBytes.length != FILE_ID_LENGTH) {
+            throw new IllegalArgumentException("Invalid fileId: " + fileId);
+        }
+        if (payloadLength > maxPayloadLength(type)) {
+            throw new IllegalArgumentException("Payload too large for " + type + ": " + payloadLength);
+        }
+        buffer.put((byte) VERSION);
+        buffer.put((byte) type.getValue());
+        buffer.put(fileIdBytes);
+        writeVarInt(buffer, partIndex);
+        buffer.putShort((short) port);
+        writeVarInt(buffer, payloadLength);
+    }
+
+    public PeerMessageHeader readHeader(DataInputStream inputStream) throws IOException {
+        int version = inputStream.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported frame version: " + version);
+        }
+        PeerMessageType type = PeerMessageType.fromValue(inputStream.readUnsignedByte());
+        byte[] fileIdBytes = new byte[FILE_ID_LENGTH];
+        inputStream.readFully(fileIdBytes);
+        String fileId = new String(fileIdBytes, StandardCharsets.US_ASCII);
+        if (!isValidFileId(fileId)) {
+            throw new IOException("Invalid fileId: " + fileId);
+        }
+        int partIndex = readVarInt(inputStream);
+        int port = inputStream.readUnsignedShort();
+        int payloadLength = readVarInt(inputStream);
+        if (payloadLength > maxPayloadLength(type)) {
+            throw new IOException("Payload too large for " + type + ": " + payloadLength);
+        }
+        return new PeerMessageHeader(type, fileId, partIndex, port, payloadLength);
+    }
+
+    public Optional<PeerMessageHeader> decodeHeader(ByteBuffer buffer) throws IOException {
+        int start = buffer.position();
+        try {
+            int version = buffer.get() & 0xFF;
+            if (version != VERSION) {
+                throw new IOException("Unsupported frame version: " + version);
+            }
+            PeerMessageType type = PeerMessageType.fromValue(buffer.get() & 0xFF);
+            byte[] fileIdBytes = new byte[FILE_ID_LENGTH];
+            buffer.get(fileIdBytes);
+            String fileId = new String(fileIdBytes, StandardCharsets.US_ASCII);
+            if (!isValidFileId(fileId)) {
+                throw new IOException("Invalid fileId: " + fileId);
+            }
+            int partIndex = readVarInt(buffer);
+            int port = buffer.getShort() & 0xFFFF;
+            int payloadLength = readVarInt(buffer);
+            if (payloadLength > maxPayloadLength(type)) {
+                throw new IOException("Payload too large for " + type + ": " + payloadLength);
+            }
+            return Optional.of(new PeerMessageHeader(type, fileId, partIndex, port, payloadLength));
+        } catch (BufferUnderflowException e) {
+            buffer.position(start);
+            return Optional.empty();
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+
+    private boolean isValidFileId(String fileId) {
+        return fileId.chars().allMatch(Character::isLetterOrDigit);
+    }
+
+    public ByteBuffer encodePartIndexes(List<Integer> partIndexes) {
+        ByteBuffer buffer = ByteBuffer.allocate(partIndexes.size() * 5);
+        partIndexes.forEach(partIndex -> writeVarInt(buffer, partIndex));
+        return buffer.flip();
+    }
+
+    public List<Integer> decodePartIndexes(ByteBuffer payload) throws IOException {
+        ByteBuffer buffer = payload.duplicate();
+        List<Integer> partIndexes = new ArrayList<>();
+        try {
+            while (buffer.hasRemaining()) {
+                partIndexes.add(readVarInt(buffer));
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Malformed part indexes payload");
+        }
+        return partIndexes;
+    }
+
+    public ByteBuffer encodeBlocks(List<Block> blocks) {
+        int length = blocks.stream().mapToInt(block -> BLOCK_OVERHEAD + block.content().remaining()).sum();
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        blocks.forEach(block -> {
+            writeVarInt(buffer, block.index());
+            writeVarInt(buffer, block.content().remaining());
+            buffer.put(block.content().duplicate());
+        });
+        return buffer.flip();
+    }
+
+    public List<Block> decodeBlocks(ByteBuffer payload) throws IOException {
+        ByteBuffer buffer = payload.duplicate();
+        List<Block> blocks = new ArrayList<>();
+        try {
+            while (buffer.hasRemaining()) {
+                int index = readVarInt(buffer);
+                int length = readVarInt(buffer);
+                blocks.add(new Block(index, buffer.slice(buffer.position(), length)));
+                buffer.position(buffer.position() + length);
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Malformed blocks payload");
+        }
+        return blocks;
+    }
+
+    static void writeVarInt(ByteBuffer buffer, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative varint: " + value);
+        }
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static int readVarInt(ByteBuffer buffer) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 28; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        return lastVarIntByte(value, buffer.get());
+    }
+
+    private static int readVarInt(DataInputStream inputStream) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 28; shift += 7) {
+            byte b = inputStream.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        return lastVarIntByte(value, inputStream.readByte());
+    }
+
+    private static int lastVarIntByte(int value, byte b) throws IOException {
+        if ((b & 0xFF) > 0x0F) {
+            throw new IOException("Malformed varint");
+        }
+        value |= b << 28;
+        if (value < 0) {
+            throw new IOException("Negative varint: " + value);
+        }
+        return value;
+    }
+}
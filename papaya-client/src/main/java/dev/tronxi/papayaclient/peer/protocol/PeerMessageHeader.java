@@ -0,0 +1,22 @@
+package dev.tronxi.papayaclient.peer.protocol;
+
+import dev.tronxi.papayaclient.peer.Peer;
+import dev.tronxi.papayaclient.peer.PeerMessageType;
+import dev.tronxi.papayaclient.persistence.incoming.StagedPart;
+
+import java.nio.ByteBuffer;
+
+public record PeerMessageHeader(PeerMessageType type, String fileId, int partIndex, int port, int payloadLength) {
+
+    public PeerMessage toMessage(String senderAddress, ByteBuffer payload) {
+        return new PeerMessage(type, fileId, partIndex, new Peer(senderAddress, port), payload);
+    }
+
+    public PeerMessage toMessage(String senderAddress, StagedPart stagedPart) {
+        return new PeerMessage(type, fileId, partIndex, new Peer(senderAddress, port), ByteBuffer.allocate(0), stagedPart);
+    }
+
+    public String partFileName() {
+        return String.valueOf(partIndex);
+    }
+}
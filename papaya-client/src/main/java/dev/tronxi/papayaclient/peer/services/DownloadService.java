@@ -2,6 +2,8 @@ package dev.tronxi.papayaclient.peer.services;
 
 import dev.tronxi.papayaclient.peer.Peer;
 import dev.tronxi.papayaclient.peer.PeerMessageType;
+import dev.tronxi.papayaclient.peer.connection.PeerConnectionPool;
+import dev.tronxi.papayaclient.peer.protocol.PeerMessageCodec;
 import dev.tronxi.papayaclient.persistence.FileManager;
 import dev.tronxi.papayaclient.persistence.papayafile.PapayaFile;
 import dev.tronxi.papayaclient.persistence.services.PapayaStatusFileService;
@@ -9,10 +11,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.net.Socket;
 import java.util.Collections;
 import java.util.List;
 import java.util.logging.Logger;
@@ -28,11 +27,15 @@ public class DownloadService {
     private final FileManager fileManager;
     private final PeerTrackerService peerTrackerService;
     private final PapayaStatusFileService papayaStatusFileService;
+    private final PeerConnectionPool peerConnectionPool;
+    private final PeerMessageCodec peerMessageCodec;
 
-    public DownloadService(FileManager fileManager, PeerTrackerService peerTrackerService, PapayaStatusFileService papayaStatusFileService) {
+    public DownloadService(FileManager fileManager, PeerTrackerService peerTrackerService, PapayaStatusFileService papayaStatusFileService, PeerConnectionPool peerConnectionPool, PeerMessageCodec peerMessageCodec) {
         this.fileManager = fileManager;
         this.peerTrackerService = peerTrackerService;
         this.papayaStatusFileService = papayaStatusFileService;
+        this.peerConnectionPool = peerConnectionPool;
+        this.peerMessageCodec = peerMessageCodec;
     }
 
     public void startAllIncompleteDownloads() {
@@ -55,13 +58,8 @@ public class DownloadService {
 
     private void askForResources(PapayaFile papayaFile, Peer peer) {
         logger.info("Asking for resources: " + papayaFile.getFileName() + " for " + peer);
-        try (Socket socket = new Socket(peer.address(), peer.port()); OutputStream outputStream = socket.getOutputStream()) {
-            ByteArrayOutputStream dataStream = new ByteArrayOutputStream();
-            dataStream.write(PeerMessageType.ASK_FOR_RESOURCES.getValue());
-            dataStream.write(papayaFile.getFileId().getBytes());
-            dataStream.write(String.valueOf(port).getBytes());
-            dataStream.write("#".getBytes());
-            outputStream.write(dataStream.toByteArray());
+        try {
+            peerConnectionPool.send(peer, peerMessageCodec.encode(PeerMessageType.ASK_FOR_RESOURCES, papayaFile.getFileId(), 0, port));
         } catch (IOException e) {
             logger.severe(e.getMessage());
         }
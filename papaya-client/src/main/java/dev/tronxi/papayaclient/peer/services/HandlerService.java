@@ -1,13 +1,16 @@
 package dev.tronxi.papayaclient.peer.services;
 
 import dev.tronxi.papayaclient.peer.PeerMessageType;
+import dev.tronxi.papayaclient.peer.handlers.AskForBlocksHandler;
 import dev.tronxi.papayaclient.peer.handlers.AskForPartFileHandler;
 import dev.tronxi.papayaclient.peer.handlers.AskForResourcesHandler;
+import dev.tronxi.papayaclient.peer.handlers.BlocksHandler;
+import dev.tronxi.papayaclient.peer.handlers.CancelHandler;
 import dev.tronxi.papayaclient.peer.handlers.PartFileHandler;
 import dev.tronxi.papayaclient.peer.handlers.ResponseAskForResourcesHandler;
+import dev.tronxi.papayaclient.peer.protocol.PeerMessage;
 import org.springframework.stereotype.Service;
 
-import java.net.Socket;
 import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
 
@@ -19,24 +22,33 @@ public class HandlerService {
     private final ResponseAskForResourcesHandler responseAskForResourcesHandler;
     private final AskForPartFileHandler askForPartFileHandler;
     private final PartFileHandler partFileHandler;
+    private final CancelHandler cancelHandler;
+    private final AskForBlocksHandler askForBlocksHandler;
+    private final BlocksHandler blocksHandler;
 
-    public HandlerService(AskForResourcesHandler askForResourcesHandler, ResponseAskForResourcesHandler responseAskForResourcesHandler, AskForPartFileHandler askForPartFileHandler, PartFileHandler partFileHandler) {
+    public HandlerService(AskForResourcesHandler askForResourcesHandler, ResponseAskForResourcesHandler responseAskForResourcesHandler, AskForPartFileHandler askForPartFileHandler, PartFileHandler partFileHandler, CancelHandler cancelHandler, AskForBlocksHandler askForBlocksHandler, BlocksHandler blocksHandler) {
         this.askForResourcesHandler = askForResourcesHandler;
         this.responseAskForResourcesHandler = responseAskForResourcesHandler;
         this.askForPartFileHandler = askForPartFileHandler;
         this.partFileHandler = partFileHandler;
+        this.cancelHandler = cancelHandler;
+        this.askForBlocksHandler = askForBlocksHandler;
+        this.blocksHandler = blocksHandler;
     }
 
-    public CompletableFuture<String> handle(Socket clientSocket, byte[] receivedData) {
+    public CompletableFuture<String> handle(PeerMessage peerMessage) {
         CompletableFuture<String> message;
-        PeerMessageType peerMessageType = PeerMessageType.fromValue(receivedData[0]);
+        PeerMessageType peerMessageType = peerMessage.type();
         logger.info("Receiving: " + peerMessageType);
         switch (peerMessageType) {
-            case PART_FILE -> message = partFileHandler.handleInNewThread(clientSocket, receivedData);
-            case ASK_FOR_RESOURCES -> message = askForResourcesHandler.handleInNewThread(clientSocket, receivedData);
+            case PART_FILE -> message = partFileHandler.handleInNewThread(peerMessage);
+            case ASK_FOR_RESOURCES -> message = askForResourcesHandler.handleInNewThread(peerMessage);
             case RESPONSE_ASK_FOR_RESOURCES ->
-                    message = responseAskForResourcesHandler.handleInNewThread(clientSocket, receivedData);
-            case ASK_FOR_PART_FILE -> message = askForPartFileHandler.handleInNewThread(clientSocket, receivedData);
+                    message = responseAskForResourcesHandler.handleInNewThread(peerMessage);
+            case ASK_FOR_PART_FILE -> message = askForPartFileHandler.handleInNewThread(peerMessage);
+            case CANCEL -> message = cancelHandler.handleInNewThread(peerMessage);
+            case ASK_FOR_BLOCKS -> message = askForBlocksHandler.handleInNewThread(peerMessage);
+            case BLOCKS -> message = blocksHandler.handleInNewThread(peerMessage);
             default -> message = CompletableFuture.completedFuture("Invalid");
         }
         return message;
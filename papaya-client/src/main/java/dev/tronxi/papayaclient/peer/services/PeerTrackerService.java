@@ -1,6 +1,7 @@
 package dev.tronxi.papayaclient.peer.services;
 
 import dev.tronxi.papayaclient.peer.Peer;
+import dev.tronxi.papayaclient.peer.download.SwarmState;
 import dev.tronxi.papayaclient.persistence.services.ConfigService;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
@@ -12,6 +13,7 @@ import org.springframework.web.client.RestTemplate;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -21,43 +23,54 @@ public class PeerTrackerService {
     private final Logger logger = Logger.getLogger(PeerTrackerService.class.getName());
 
     private final String trackerAddress;
+    private final SwarmState swarmState;
     private Peer peer;
     private List<Peer> lastPeers = new ArrayList<>();
 
-    public PeerTrackerService(ConfigService configService) {
+    public PeerTrackerService(ConfigService configService, SwarmState swarmState) {
         this.trackerAddress = configService.retrieveTracker();
+        this.swarmState = swarmState;
     }
 
 
     public List<Peer> retrievePeers() {
-        List<Peer> currentPeers = retrieveCurrentPeers();
-        return currentPeers.stream().filter(p -> !p.equals(peer)).toList();
+        return retrieveCurrentPeers().orElse(List.of());
     }
 
     public List<Peer> retrieveNewPeers() {
-        List<Peer> currentPeers = retrievePeers();
+        Optional<List<Peer>> maybeCurrentPeers = retrieveCurrentPeers();
+        if (maybeCurrentPeers.isEmpty()) {
+            return List.of();
+        }
+        List<Peer> currentPeers = maybeCurrentPeers.get();
         List<Peer> newPeers = new ArrayList<>();
         for (Peer peer : currentPeers) {
             if (!lastPeers.contains(peer)) {
                 newPeers.add(peer);
             }
         }
+        for (Peer lastPeer : lastPeers) {
+            if (!currentPeers.contains(lastPeer)) {
+                logger.info("Peer left: " + lastPeer);
+                swarmState.removePeer(lastPeer);
+            }
+        }
         lastPeers = currentPeers;
         return newPeers;
     }
 
-    private List<Peer> retrieveCurrentPeers() {
+    private Optional<List<Peer>> retrieveCurrentPeers() {
         try {
             List<Peer> response = new RestTemplate().exchange(trackerAddress + "/peer", HttpMethod.GET, null, new ParameterizedTypeReference<List<Peer>>() {
             }).getBody();
             logger.info("Peers: " + response);
             if (response != null) {
-                return response;
+                return Optional.of(response.stream().filter(p -> !p.equals(peer)).toList());
             }
-            return List.of();
+            return Optional.of(List.of());
         } catch (Exception e) {
             logger.log(Level.SEVERE, e.getMessage(), e);
-            return List.of();
+            return Optional.empty();
         }
     }
 
@@ -1,5 +1,6 @@
 package dev.tronxi.papayaclient.peer.services;
 
+import dev.tronxi.papayaclient.peer.connection.PeerConnectionPool;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
@@ -12,15 +13,18 @@ public class StopService {
     private final Logger logger = Logger.getLogger(StopService.class.getName());
 
     private final PeerTrackerService peerTrackerService;
+    private final PeerConnectionPool peerConnectionPool;
 
-    public StopService(PeerTrackerService peerTrackerService) {
+    public StopService(PeerTrackerService peerTrackerService, PeerConnectionPool peerConnectionPool) {
         this.peerTrackerService = peerTrackerService;
+        this.peerConnectionPool = peerConnectionPool;
     }
 
 
     public void stop(ServerSocket serverSocket) {
         logger.info("Stop...");
         peerTrackerService.remove();
+        peerConnectionPool.closeAll();
         try {
             logger.info("Close socket");
             if (serverSocket != null && !serverSocket.isClosed()) {
@@ -0,0 +1,39 @@
+package dev.tronxi.papayaclient.peer.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.Semaphore;
+
+@Service
+public class TransferLimiter {
+
+    private final Semaphore uploads;
+    private final Semaphore downloads;
+
+    public TransferLimiter(@Value("${papaya.transfer.maxConcurrentUploads}") int maxConcurrentUploads,
+                           @Value("${papaya.transfer.maxConcurrentDownloads}") int maxConcurrentDownloads) {
+        this.uploads = new Semaphore(maxConcurrentUploads, true);
+        this.downloads = new Semaphore(maxConcurrentDownloads, true);
+    }
+
+    public void acquireUpload() throws InterruptedException {
+        uploads.acquire();
+    }
+
+    public void releaseUpload() {
+        uploads.release();
+    }
+
+    public void acquireDownload() throws InterruptedException {
+        downloads.acquire();
+    }
+
+    public boolean tryAcquireDownload() {
+        return downloads.tryAcquire();
+    }
+
+    public void releaseDownload() {
+        downloads.release();
+    }
+}
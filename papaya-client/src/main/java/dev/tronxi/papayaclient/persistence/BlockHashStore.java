@@ -0,0 +1,40 @@
+package dev.tronxi.papayaclient.persistence;
+
+import dev.tronxi.papayaclient.persistence.hash.MerkleTree;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.logging.Logger;
+
+@Component
+public class BlockHashStore {
+
+    private static final Logger logger = Logger.getLogger(BlockHashStore.class.getName());
+    private static final String EXTENSION = ".blocks";
+
+    public void write(Path store, String partFileName, List<byte[]> blockHashes) throws IOException {
+        Path path = store.resolve(partFileName + EXTENSION);
+        Path tempPath = Files.createTempFile(store, partFileName + EXTENSION + ".", ".tmp");
+        Files.write(tempPath, MerkleTree.encode(blockHashes).array());
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public Optional<List<byte[]>> read(Path store, String partFileName, int digestLength) {
+        Path path = store.resolve(partFileName + EXTENSION);
+        if (!path.toFile().exists()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(MerkleTree.decode(ByteBuffer.wrap(Files.readAllBytes(path)), digestLength));
+        } catch (IOException | RuntimeException e) {
+            logger.severe(e.getMessage());
+            return Optional.empty();
+        }
+    }
+}
@@ -1,24 +1,39 @@
 package dev.tronxi.papayaclient.persistence;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.tronxi.papayaclient.persistence.chunking.ChunkStore;
+import dev.tronxi.papayaclient.persistence.chunking.ChunkingStrategy;
+import dev.tronxi.papayaclient.persistence.fingerprint.FingerprintCache;
+import dev.tronxi.papayaclient.persistence.hash.BlockHasher;
+import dev.tronxi.papayaclient.persistence.hash.HashAlgorithm;
+import dev.tronxi.papayaclient.persistence.hash.MerkleTree;
+import dev.tronxi.papayaclient.persistence.incoming.IncomingPart;
+import dev.tronxi.papayaclient.persistence.incoming.StagedPart;
 import dev.tronxi.papayaclient.persistence.papayafile.PapayaFile;
 import dev.tronxi.papayaclient.persistence.papayafile.PartFile;
 import dev.tronxi.papayaclient.persistence.papayastatusfile.JoinStatus;
 import dev.tronxi.papayaclient.persistence.papayastatusfile.PapayaStatus;
 import dev.tronxi.papayaclient.persistence.papayastatusfile.PapayaStatusFile;
 import dev.tronxi.papayaclient.persistence.papayastatusfile.PartStatusFile;
-import dev.tronxi.papayaclient.persistence.repositories.PartStatusFileRepository;
 import dev.tronxi.papayaclient.persistence.services.ConfigService;
 import dev.tronxi.papayaclient.persistence.services.PapayaStatusFileService;
+import dev.tronxi.papayaclient.persistence.storage.MappedPartCache;
+import dev.tronxi.papayaclient.persistence.storage.PartLocation;
+import dev.tronxi.papayaclient.persistence.storage.PartStorage;
 import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
@@ -28,23 +43,40 @@ public class FileManager {
 
     private final String workspace;
 
+    @Value("${papaya.storage.deepVerify}")
+    private boolean deepVerify;
+
     private Path storePath;
 
-    private final PartSizeCalculator partSizeCalculator;
+    private final ChunkingStrategy chunkingStrategy;
+    private final ChunkStore chunkStore;
+    private final PartSplitter partSplitter;
+    private final PartHashExecutor partHashExecutor;
+    private final BlockHashStore blockHashStore;
+    private final PartStorage partStorage;
+    private final MappedPartCache mappedPartCache;
+    private final FingerprintCache fingerprintCache;
     private final HashGenerator hashGenerator;
     private final PapayaStatusFileService papayaStatusFileService;
-    private final PartStatusFileRepository partStatusFileRepository;
     private final Map<String, Function<PapayaStatusFile, Void>> updateFunctions = new HashMap<>();
+    private final Map<String, PapayaFile> papayaFileCache = new ConcurrentHashMap<>();
     private Function<PapayaStatusFile, Void> newPapayaStatusFileFunction;
     private final List<Function<PapayaStatusFile, Void>> deletedPapayaStatusFileFunctions = new ArrayList<>();
+    private final List<Function<PapayaStatusFile, Void>> generatedPapayaStatusFileFunctions = new ArrayList<>();
 
     private static final Logger logger = Logger.getLogger(FileManager.class.getName());
 
 
-    public FileManager(ConfigService configService, PartSizeCalculator partSizeCalculator, HashGenerator hashGenerator, PapayaStatusFileService papayaStatusFileService, PartStatusFileRepository partStatusFileRepository) {
-        this.partSizeCalculator = partSizeCalculator;
+    public FileManager(ConfigService configService, ChunkingStrategy chunkingStrategy, ChunkStore chunkStore, PartSplitter partSplitter, PartHashExecutor partHashExecutor, BlockHashStore blockHashStore, PartStorage partStorage, MappedPartCache mappedPartCache, FingerprintCache fingerprintCache, HashGenerator hashGenerator, PapayaStatusFileService papayaStatusFileService) {
+        this.chunkingStrategy = chunkingStrategy;
+        this.chunkStore = chunkStore;
+        this.partSplitter = partSplitter;
+        this.partHashExecutor = partHashExecutor;
+        this.blockHashStore = blockHashStore;
+        this.partStorage = partStorage;
+        this.mappedPartCache = mappedPartCache;
+        this.fingerprintCache = fingerprintCache;
         this.papayaStatusFileService = papayaStatusFileService;
-        this.partStatusFileRepository = partStatusFileRepository;
         this.hashGenerator = hashGenerator;
         this.workspace = configService.retrieveWorkspace().orElse("");
     }
@@ -62,39 +94,27 @@ public class FileManager {
     public Optional<Path> split(File inputFile) {
         logger.info("Start split");
         Path inputFilePatch = inputFile.toPath();
-        PapayaFile papayaFile = new PapayaFile(inputFile.getName());
+        long partSize = chunkingStrategy.partSize(inputFile.length());
+        logger.info("PartSize: " + partSize);
+        PapayaFile papayaFile = new PapayaFile(inputFile.getName(), hashGenerator.getDefaultAlgorithm())
+                .setBlockSize(MerkleTree.DEFAULT_BLOCK_SIZE)
+                .setFileSize(inputFile.length())
+                .setPartSize(partSize);
         PapayaStatusFile papayaStatusFile = new PapayaStatusFile(papayaFile.getFileName(), papayaFile.getFileId());
         Path store = storePath.resolve(papayaFile.getFileId());
         if (!store.toFile().exists()) {
             store.toFile().mkdirs();
         }
-        long partSize = partSizeCalculator.calculate(inputFile.length());
-        logger.info("PartSize: " + partSize);
-        int numPart = 0;
-
-        try (InputStream inputStream = Files.newInputStream(inputFilePatch)) {
-            byte[] buffer = new byte[384000000];
-            int bytesRead;
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                logger.info("Reading bytes: " + bytesRead);
-                byte[] bytes = new byte[bytesRead];
-                System.arraycopy(buffer, 0, bytes, 0, bytesRead);
-                for (int i = 0; i < bytes.length; i += (int) partSize) {
-                    logger.info("Reading part: " + i);
-                    long end = Math.min(bytes.length, i + partSize);
-                    byte[] part = Arrays.copyOfRange(bytes, i, (int) end);
-                    String partName = String.valueOf(numPart);
-                    String partHash = hashGenerator.generateHash(part);
-                    PartFile partFile = new PartFile(partName, partHash);
-                    papayaFile.addPartFile(partFile);
-                    Files.write(store.resolve(partName), part);
-                    PartStatusFile partStatusFile = new PartStatusFile(partFile.getFileName(), partFile.getFileHash(), PapayaStatus.COMPLETE);
-                    papayaStatusFile.addPartStatusFile(partStatusFile);
-                    numPart++;
-                }
+
+        try {
+            for (PartFile partFile : partSplitter.split(inputFilePatch, store, papayaFile)) {
+                partStorage.share(store, papayaFile, partFile);
+                PartStatusFile partStatusFile = new PartStatusFile(partFile.getFileName(), partFile.getFileHash(), PapayaStatus.COMPLETE);
+                papayaStatusFile.addPartStatusFile(partStatusFile);
             }
             ObjectMapper objectMapper = new ObjectMapper();
             objectMapper.writeValue(store.resolve(papayaFile.getFileId() + ".papaya").toFile(), papayaFile);
+            fingerprintCache.record(store, papayaFile, partFile -> partStorage.locate(store, papayaFile, partFile.getFileName(), true));
             papayaStatusFileService.save(papayaStatusFile);
             if (newPapayaStatusFileFunction != null) {
                 newPapayaStatusFileFunction.apply(papayaStatusFile);
@@ -109,18 +129,13 @@ public class FileManager {
 
     public void startJoinStarted() {
         List<PapayaStatusFile> toJoin = papayaStatusFileService.findAllCompleteAndNotJoined();
-        toJoin.forEach(papayaStatusFile -> {
-            File file = storePath.resolve(papayaStatusFile.getFileId()).resolve(papayaStatusFile.getFileName()).toFile();
-            if (file.exists()) {
-                file.delete();
-            }
-            joinStore(papayaStatusFile);
-        });
+        toJoin.forEach(this::joinStore);
     }
 
     public Optional<Path> joinStore(PapayaStatusFile papayaStatusFile) {
         logger.info("Start join");
         File storeFile = storePath.resolve(papayaStatusFile.getFileId()).toFile();
+        boolean resume = papayaStatusFile.getJoinStatus() == JoinStatus.STARTED;
         papayaStatusFile.setJoinStatus(JoinStatus.STARTED);
         papayaStatusFileService.save(papayaStatusFile);
         if (updateFunctions.containsKey(papayaStatusFile.getFileId())) {
@@ -137,35 +152,13 @@ public class FileManager {
             ObjectMapper objectMapper = new ObjectMapper();
             try {
                 PapayaFile papayaFile = objectMapper.readValue(papayaPath.toFile(), PapayaFile.class);
-                Path papayaFilePath = storeFile.toPath().resolve(papayaFile.getFileName());
-                logger.info("Start writing for join: " + papayaFilePath);
-
-                try (FileOutputStream fileOutputStream = new FileOutputStream(papayaFilePath.toFile())) {
-                    for (PartFile partFile : papayaFile.getPartFiles()) {
-                        logger.info("Reading for join:  " + partFile.getFileName());
-                        Path partPath = storeFile.toPath().resolve(partFile.getFileName());
-                        try {
-                            byte[] partByte = Files.readAllBytes(partPath);
-                            String partHash = hashGenerator.generateHash(partByte);
-                            if (!partHash.equals(partFile.getFileHash())) {
-                                logger.severe("part hash does not match: " + partFile.getFileName());
-                                return Optional.empty();
-                            }
-                            logger.info("Writing for join:  " + partByte.length);
-                            fileOutputStream.write(partByte);
-                        } catch (IOException e) {
-                            logger.severe(e.getMessage());
-                            return Optional.empty();
-                        }
-                    }
-                    papayaStatusFile.setJoinStatus(JoinStatus.COMPLETED);
-                    papayaStatusFileService.save(papayaStatusFile);
-                    if (updateFunctions.containsKey(papayaStatusFile.getFileId())) {
-                        updateFunctions.get(papayaStatusFile.getFileId()).apply(papayaStatusFile);
-                    }
-
-                } catch (IOException e) {
-                    logger.severe(e.getMessage());
+                Set<String> verifiedParts = new HashSet<>(papayaStatusFile.getCompletedParts());
+                Path papayaFilePath = partStorage.join(storeFile.toPath(), papayaFile, verifiedParts, resume);
+                fingerprintCache.record(storeFile.toPath(), papayaFile, partFile -> partStorage.locate(storeFile.toPath(), papayaFile, partFile.getFileName(), true));
+                papayaStatusFile.setJoinStatus(JoinStatus.COMPLETED);
+                papayaStatusFileService.save(papayaStatusFile);
+                if (updateFunctions.containsKey(papayaStatusFile.getFileId())) {
+                    updateFunctions.get(papayaStatusFile.getFileId()).apply(papayaStatusFile);
                 }
                 return Optional.of(papayaFilePath);
             } catch (IOException e) {
@@ -179,7 +172,15 @@ public class FileManager {
     }
 
     public void generateStatus(File storeFile) {
-        logger.info("Start generate status");
+        generateStatus(storeFile, deepVerify);
+    }
+
+    public void generateStatus(File storeFile, boolean deepVerify) {
+        generateStatus(storeFile, deepVerify, Optional.empty());
+    }
+
+    private void generateStatus(File storeFile, boolean deepVerify, Optional<Set<String>> filledParts) {
+        logger.info("Start generate status deepVerify: " + deepVerify);
         List<Path> papayaFiles = new ArrayList<>();
         try (DirectoryStream<Path> stream = Files.newDirectoryStream(storeFile.toPath(), "*.papaya")) {
             stream.forEach(papayaFiles::add);
@@ -191,28 +192,15 @@ public class FileManager {
             try {
                 PapayaFile papayaFile = objectMapper.readValue(papayaPath.toFile(), PapayaFile.class);
                 PapayaStatusFile papayaStatusFile = new PapayaStatusFile(papayaFile.getFileName(), papayaFile.getFileId());
-                for (PartFile partFile : papayaFile.getPartFiles()) {
-                    logger.info("Reading for generate status:  " + partFile.getFileName());
-                    Path partPath = storeFile.toPath().resolve(partFile.getFileName());
-                    if (partPath.toFile().exists()) {
-                        try {
-                            byte[] partByte = Files.readAllBytes(partPath);
-                            String partHash = hashGenerator.generateHash(partByte);
-                            PartStatusFile partStatusFile;
-                            if (partHash.equals(partFile.getFileHash())) {
-                                partStatusFile = new PartStatusFile(partFile.getFileName(), partFile.getFileHash(), PapayaStatus.COMPLETE);
-                            } else {
-                                partStatusFile = new PartStatusFile(partFile.getFileName(), partFile.getFileHash(), PapayaStatus.INCOMPLETE);
-                            }
-                            papayaStatusFile.addPartStatusFile(partStatusFile);
-                        } catch (IOException e) {
-                            PartStatusFile partStatusFile = new PartStatusFile(partFile.getFileName(), partFile.getFileHash(), PapayaStatus.INCOMPLETE);
-                            papayaStatusFile.addPartStatusFile(partStatusFile);
-                        }
-                    } else {
-                        PartStatusFile partStatusFile = new PartStatusFile(partFile.getFileName(), partFile.getFileHash(), PapayaStatus.INCOMPLETE);
-                        papayaStatusFile.addPartStatusFile(partStatusFile);
-                    }
+                logger.info("Reading for generate status:  " + papayaFile.getPartFiles().size() + " parts");
+                Optional<PapayaStatusFile> maybeCurrent = deepVerify ? Optional.empty() : papayaStatusFileService.findById(papayaFile.getFileId());
+                List<Optional<String>> partHashes = fingerprintCache.hashParts(storeFile.toPath(), papayaFile, partFile -> partStorage.locate(storeFile.toPath(), papayaFile, partFile.getFileName(),
+                        filledParts.map(parts -> parts.contains(partFile.getFileName()))
+                                .orElseGet(() -> maybeCurrent.map(current -> current.isComplete(partFile.getFileName())).orElse(true))), deepVerify);
+                for (int i = 0; i < partHashes.size(); i++) {
+                    PartFile partFile = papayaFile.getPartFiles().get(i);
+                    PapayaStatus status = partHashes.get(i).map(partFile.getFileHash()::equals).orElse(false) ? PapayaStatus.COMPLETE : PapayaStatus.INCOMPLETE;
+                    papayaStatusFile.addPartStatusFile(new PartStatusFile(partFile.getFileName(), partFile.getFileHash(), status));
                 }
                 if (updateFunctions.containsKey(papayaStatusFile.getFileId())) {
                     updateFunctions.get(papayaStatusFile.getFileId()).apply(papayaStatusFile);
@@ -222,6 +210,7 @@ public class FileManager {
                     }
                 }
                 papayaStatusFileService.save(papayaStatusFile);
+                generatedPapayaStatusFileFunctions.forEach(f -> f.apply(papayaStatusFile));
             } catch (IOException e) {
                 logger.severe(e.getMessage());
             }
@@ -265,7 +254,7 @@ public class FileManager {
     }
 
     public void savePartStatusFile(PapayaStatusFile papayaStatusFile, PartStatusFile partStatusFile) {
-        partStatusFileRepository.save(partStatusFile);
+        papayaStatusFileService.savePartStatusFile(papayaStatusFile, partStatusFile);
         if (updateFunctions.containsKey(papayaStatusFile.getFileId())) {
             updateFunctions.get(papayaStatusFile.getFileId()).apply(papayaStatusFile);
         } else {
@@ -275,19 +264,95 @@ public class FileManager {
         }
     }
 
-    public void writePart(String fileId, String partFileName, ByteArrayOutputStream content) {
-        Path file = storePath.resolve(fileId);
-        Path partFile = file.resolve(partFileName);
-        if (!file.toFile().exists()) {
-            file.toFile().mkdirs();
+    public IncomingPart createIncomingPart(String fileId, String partFileName) throws IOException {
+        PapayaFile papayaFile = retrieveCachedPapayaFile(fileId)
+                .orElseThrow(() -> new FileNotFoundException("Papaya file not found: " + fileId));
+        Optional<PartFile> maybePartFile = findPartFile(papayaFile, partFileName);
+        HashAlgorithm hashAlgorithm = maybePartFile.map(PartFile::getHashAlgorithm).orElse(papayaFile.getHashAlgorithm());
+        String merkleRoot = maybePartFile.map(PartFile::getMerkleRoot).orElse(null);
+        return new IncomingPart(storePath.resolve(fileId), partFileName, hashGenerator, hashAlgorithm, papayaFile.getBlockSize(), merkleRoot);
+    }
+
+    public Optional<PapayaFile> retrieveCachedPapayaFile(String fileId) {
+        return Optional.ofNullable(papayaFileCache.computeIfAbsent(fileId, id -> retrievePapayaFileFromFileId(id).orElse(null)));
+    }
+
+    public Optional<PartFile> retrievePartFile(String fileId, String partFileName) {
+        return retrieveCachedPapayaFile(fileId).flatMap(papayaFile -> findPartFile(papayaFile, partFileName));
+    }
+
+    private Optional<PartFile> findPartFile(PapayaFile papayaFile, String partFileName) {
+        return papayaFile.getPartFiles().stream()
+                .filter(partFile -> partFile.getFileName().equals(partFileName))
+                .findFirst();
+    }
+
+    public Optional<List<byte[]>> retrieveBlockHashes(String fileId, String partFileName) {
+        Optional<PapayaFile> maybePapayaFile = retrieveCachedPapayaFile(fileId);
+        Optional<PartFile> maybePartFile = retrievePartFile(fileId, partFileName);
+        if (maybePapayaFile.isEmpty() || maybePartFile.isEmpty() || maybePartFile.get().getMerkleRoot() == null) {
+            return Optional.empty();
+        }
+        HashAlgorithm hashAlgorithm = maybePartFile.get().getHashAlgorithm();
+        int blockSize = maybePapayaFile.get().getBlockSize();
+        Path store = storePath.resolve(fileId);
+        Optional<List<byte[]>> maybeBlockHashes = blockHashStore.read(store, partFileName, MerkleTree.digestLength(hashAlgorithm));
+        if (maybeBlockHashes.isPresent()) {
+            return maybeBlockHashes;
+        }
+        Optional<PartLocation> maybePartLocation = partStorage.locate(store, maybePapayaFile.get(), partFileName, papayaStatusFileService.isPartComplete(fileId, partFileName));
+        if (maybePartLocation.isEmpty()) {
+            return Optional.empty();
+        }
+        PartLocation partLocation = maybePartLocation.get();
+        try (FileChannel fileChannel = FileChannel.open(partLocation.path(), StandardOpenOption.READ)) {
+            BlockHasher blockHasher = new BlockHasher(hashAlgorithm, blockSize);
+            ByteBuffer buffer = ByteBuffer.allocate(blockSize);
+            long position = partLocation.position();
+            long end = position + partLocation.size();
+            while (position < end) {
+                buffer.clear().limit((int) Math.min(blockSize, end - position));
+                position += partHashExecutor.readFully(fileChannel, buffer, position);
+                blockHasher.update(buffer.flip());
+            }
+            List<byte[]> blockHashes = blockHasher.finish();
+            blockHashStore.write(store, partFileName, blockHashes);
+            return Optional.of(blockHashes);
+        } catch (IOException e) {
+            logger.severe(e.getMessage());
+            return Optional.empty();
         }
+    }
+
+    public Optional<PartLocation> locatePart(String fileId, String partFileName) {
+        return retrieveCachedPapayaFile(fileId).flatMap(papayaFile -> partStorage.locate(storePath.resolve(fileId), papayaFile, partFileName, papayaStatusFileService.isPartComplete(fileId, partFileName)));
+    }
+
+    public boolean commitPart(String fileId, String partFileName, StagedPart stagedPart) {
         try {
             logger.info("Writing part: " + fileId + " / " + partFileName);
-            Files.write(partFile, content.toByteArray());
+            PapayaFile papayaFile = retrieveCachedPapayaFile(fileId)
+                    .orElseThrow(() -> new FileNotFoundException("Papaya file not found: " + fileId));
+            partStorage.locate(storePath.resolve(fileId), papayaFile, partFileName, true).ifPresent(mappedPartCache::evict);
+            partStorage.commit(storePath.resolve(fileId), papayaFile, partFileName, stagedPart);
+            findPartFile(papayaFile, partFileName).ifPresent(partFile -> partStorage.share(storePath.resolve(fileId), papayaFile, partFile));
+            if (!stagedPart.blockHashes().isEmpty()) {
+                blockHashStore.write(storePath.resolve(fileId), partFileName, stagedPart.blockHashes());
+            }
+            return true;
         } catch (IOException e) {
             logger.severe(e.getMessage());
+            discardPart(stagedPart);
+            return false;
         }
+    }
 
+    public void discardPart(StagedPart stagedPart) {
+        try {
+            Files.deleteIfExists(stagedPart.path());
+        } catch (IOException e) {
+            logger.severe(e.getMessage());
+        }
     }
 
     public void createStoreFromPapayaFile(PapayaFile papayaFile) {
@@ -301,10 +366,21 @@ public class FileManager {
             try {
                 logger.info("Creating papaya file");
                 objectMapper.writeValue(papayaFilePath.toFile(), papayaFile);
-                generateStatus(store);
+                partStorage.allocate(store.toPath(), papayaFile);
+                Set<String> reusedParts = new HashSet<>();
+                for (PartFile partFile : papayaFile.getPartFiles()) {
+                    if (partStorage.reuse(store.toPath(), papayaFile, partFile)) {
+                        reusedParts.add(partFile.getFileName());
+                    }
+                }
+                logger.info("Reused " + reusedParts.size() + " of " + papayaFile.getPartFiles().size() + " parts, skipping verification of the rest");
+                generateStatus(store, deepVerify, Optional.of(reusedParts));
             } catch (IOException e) {
                 logger.severe(e.getMessage());
             }
+        } else if (papayaStatusFileService.findById(papayaFile.getFileId()).isEmpty()) {
+            logger.info("Papaya store already exists, rebuilding status");
+            generateStatus(store);
         } else {
             logger.info("Papaya store already exists");
         }
@@ -315,12 +391,7 @@ public class FileManager {
         if (maybePapayaStatusFile.isEmpty()) {
             return Collections.emptyList();
         }
-        PapayaStatusFile papayaStatusFile = maybePapayaStatusFile.get();
-        return papayaStatusFile.getPartStatusFiles()
-                .stream()
-                .filter(partStatusFile -> partStatusFile.getStatus() == PapayaStatus.COMPLETE)
-                .map(PartStatusFile::getFileName)
-                .toList();
+        return maybePapayaStatusFile.get().getCompletedParts();
     }
 
     public void setNewPapayaStatusFileFunction(Function<PapayaStatusFile, Void> function) {
@@ -335,6 +406,10 @@ public class FileManager {
         deletedPapayaStatusFileFunctions.add(deletedFunction);
     }
 
+    public void addGeneratedPapayaStatusFileFunction(Function<PapayaStatusFile, Void> generatedFunction) {
+        generatedPapayaStatusFileFunctions.add(generatedFunction);
+    }
+
     public List<PapayaStatusFile> findAll() {
         return papayaStatusFileService.findAll();
     }
@@ -349,13 +424,16 @@ public class FileManager {
             if (papayaFolder != null && papayaFolder.exists() && papayaFolder.isDirectory()) {
                 try {
                     papayaStatusFileService.remove(papayaStatusFile);
+                    mappedPartCache.evict(papayaFolder.toPath());
                     deleteDirectory(papayaFolder.toPath());
+                    chunkStore.prune(storePath);
                 } catch (Exception e) {
                     logger.severe(e.getMessage());
                 }
             }
         }).thenRun(() -> {
             updateFunctions.remove(papayaStatusFile.getFileId());
+            papayaFileCache.remove(papayaStatusFile.getFileId());
             deletedPapayaStatusFileFunctions.forEach(f -> f.apply(papayaStatusFile));
         });
     }
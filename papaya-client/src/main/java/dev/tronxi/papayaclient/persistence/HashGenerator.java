@@ -1,23 +1,43 @@
 package dev.tronxi.papayaclient.persistence;
 
+import dev.tronxi.papayaclient.persistence.hash.HashAlgorithm;
+import dev.tronxi.papayaclient.persistence.hash.PartHasher;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.nio.ByteBuffer;
+import java.util.HexFormat;
 
 @Component
 public class HashGenerator {
-    public String generateHash(byte[] bytes) {
-        try {
-            MessageDigest messageDigest = MessageDigest.getInstance("MD5");
-            StringBuilder hashHex = new StringBuilder();
-            byte[] hash = messageDigest.digest(bytes);
-            for (byte b : hash) {
-                hashHex.append(String.format("%02x", b));
-            }
-            return hashHex.toString();
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
-        }
+
+    private static final HexFormat HEX_FORMAT = HexFormat.of();
+
+    private final HashAlgorithm defaultAlgorithm;
+
+    public HashGenerator(@Value("${papaya.hashing.algorithm}") HashAlgorithm defaultAlgorithm) {
+        this.defaultAlgorithm = defaultAlgorithm;
+    }
+
+    public HashAlgorithm getDefaultAlgorithm() {
+        return defaultAlgorithm;
+    }
+
+    public String generateHash(HashAlgorithm algorithm, byte[] bytes) {
+        return generateHash(algorithm, ByteBuffer.wrap(bytes));
+    }
+
+    public String generateHash(HashAlgorithm algorithm, ByteBuffer content) {
+        PartHasher partHasher = newHasher(algorithm);
+        partHasher.update(content.duplicate());
+        return toHex(partHasher.digest());
+    }
+
+    public PartHasher newHasher(HashAlgorithm algorithm) {
+        return algorithm.newHasher();
+    }
+
+    public String toHex(byte[] hash) {
+        return HEX_FORMAT.formatHex(hash);
     }
 }
@@ -0,0 +1,118 @@
+package dev.tronxi.papayaclient.persistence;
+
+import dev.tronxi.papayaclient.persistence.hash.HashAlgorithm;
+import dev.tronxi.papayaclient.persistence.hash.PartHasher;
+import dev.tronxi.papayaclient.persistence.papayafile.PartFile;
+import dev.tronxi.papayaclient.persistence.storage.MappedPartCache;
+import dev.tronxi.papayaclient.persistence.storage.PartLocation;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+@Component
+public class PartHashExecutor {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final HashGenerator hashGenerator;
+    private final ExecutorService hashingExecutor;
+    private final MappedPartCache mappedPartCache;
+    private final ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+    public PartHashExecutor(HashGenerator hashGenerator, @Qualifier("hashingExecutor") ExecutorService hashingExecutor, MappedPartCache mappedPartCache) {
+        this.hashGenerator = hashGenerator;
+        this.hashingExecutor = hashingExecutor;
+        this.mappedPartCache = mappedPartCache;
+    }
+
+    public <T, R> List<R> invokeOrdered(List<T> items, PartTask<T, R> task) throws IOException {
+        List<Future<R>> futures = new ArrayList<>(items.size());
+        for (T item : items) {
+            futures.add(hashingExecutor.submit(() -> task.apply(item, buffers.get())));
+        }
+        List<R> results = new ArrayList<>(items.size());
+        try {
+            for (Future<R> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException(e.getCause());
+        }
+        return results;
+    }
+
+    public List<Optional<String>> hashParts(List<PartFile> partFiles, Function<PartFile, Optional<PartLocation>> locator) throws IOException {
+        return invokeOrdered(partFiles, (partFile, buffer) -> {
+            Optional<PartLocation> maybePartLocation = locator.apply(partFile);
+            if (maybePartLocation.isEmpty()) {
+                return Optional.empty();
+            }
+            try {
+                return Optional.of(hashPart(maybePartLocation.get(), partFile.getHashAlgorithm(), buffer));
+            } catch (IOException e) {
+                return Optional.empty();
+            }
+        });
+    }
+
+    public String hashPart(PartLocation partLocation, HashAlgorithm hashAlgorithm, ByteBuffer buffer) throws IOException {
+        Optional<ByteBuffer> maybeRegion = mappedPartCache.map(partLocation);
+        if (maybeRegion.isPresent()) {
+            PartHasher partHasher = hashGenerator.newHasher(hashAlgorithm);
+            partHasher.update(maybeRegion.get());
+            return hashGenerator.toHex(partHasher.digest());
+        }
+        try (FileChannel fileChannel = FileChannel.open(partLocation.path(), StandardOpenOption.READ)) {
+            return hash(fileChannel, partLocation.position(), partLocation.size(), hashAlgorithm, buffer);
+        }
+    }
+
+    public String hash(FileChannel fileChannel, long position, long size, HashAlgorithm hashAlgorithm, ByteBuffer buffer) throws IOException {
+        PartHasher partHasher = hashGenerator.newHasher(hashAlgorithm);
+        long end = position + size;
+        while (position < end) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+            position += readFully(fileChannel, buffer, position);
+            partHasher.update(buffer.flip());
+        }
+        return hashGenerator.toHex(partHasher.digest());
+    }
+
+    public int readFully(FileChannel fileChannel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = fileChannel.read(buffer, position + total);
+            if (read == -1) {
+                throw new EOFException("Unexpected end of file at " + (position + total));
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    @FunctionalInterface
+    public interface PartTask<T, R> {
+        R apply(T item, ByteBuffer buffer) throws IOException;
+    }
+}
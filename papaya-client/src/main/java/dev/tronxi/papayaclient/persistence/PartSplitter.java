@@ -0,0 +1,85 @@
+package dev.tronxi.papayaclient.persistence;
+
+import dev.tronxi.papayaclient.persistence.chunking.Chunk;
+import dev.tronxi.papayaclient.persistence.chunking.ChunkingStrategy;
+import dev.tronxi.papayaclient.persistence.hash.BlockHasher;
+import dev.tronxi.papayaclient.persistence.hash.HashAlgorithm;
+import dev.tronxi.papayaclient.persistence.hash.MerkleTree;
+import dev.tronxi.papayaclient.persistence.hash.PartHasher;
+import dev.tronxi.papayaclient.persistence.papayafile.PapayaFile;
+import dev.tronxi.papayaclient.persistence.papayafile.PartFile;
+import dev.tronxi.papayaclient.persistence.storage.PartLocation;
+import dev.tronxi.papayaclient.persistence.storage.PartStorage;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.logging.Logger;
+
+@Component
+public class PartSplitter {
+
+    private static final Logger logger = Logger.getLogger(PartSplitter.class.getName());
+
+    private final HashGenerator hashGenerator;
+    private final PartHashExecutor partHashExecutor;
+    private final BlockHashStore blockHashStore;
+    private final PartStorage partStorage;
+    private final ChunkingStrategy chunkingStrategy;
+
+    public PartSplitter(HashGenerator hashGenerator, PartHashExecutor partHashExecutor, BlockHashStore blockHashStore, PartStorage partStorage, ChunkingStrategy chunkingStrategy) {
+        this.hashGenerator = hashGenerator;
+        this.partHashExecutor = partHashExecutor;
+        this.blockHashStore = blockHashStore;
+        this.partStorage = partStorage;
+        this.chunkingStrategy = chunkingStrategy;
+    }
+
+    public List<PartFile> split(Path inputFile, Path store, PapayaFile papayaFile) throws IOException {
+        try (FileChannel inputChannel = FileChannel.open(inputFile, StandardOpenOption.READ)) {
+            List<Chunk> chunks = chunkingStrategy.chunk(inputChannel);
+            for (int partIndex = 0; partIndex < chunks.size(); partIndex++) {
+                Chunk chunk = chunks.get(partIndex);
+                papayaFile.addPartFile(new PartFile(String.valueOf(partIndex), null, papayaFile.getHashAlgorithm())
+                        .setOffset(chunk.position())
+                        .setSize(chunk.size()));
+            }
+            partStorage.allocate(store, papayaFile);
+            return partHashExecutor.invokeOrdered(papayaFile.getPartFiles(), (partFile, buffer) -> {
+                PartLocation partLocation = partStorage.writeLocation(store, papayaFile, Integer.parseInt(partFile.getFileName()), partFile.getOffset(), partFile.getSize());
+                return writePart(inputChannel, store, partFile, partLocation, papayaFile.getBlockSize(), buffer);
+            });
+        }
+    }
+
+    private PartFile writePart(FileChannel inputChannel, Path store, PartFile partFile, PartLocation partLocation, int blockSize, ByteBuffer buffer) throws IOException {
+        String partFileName = partFile.getFileName();
+        HashAlgorithm hashAlgorithm = partFile.getHashAlgorithm();
+        logger.info("Writing part: " + partFileName + " size: " + partLocation.size());
+        PartHasher partHasher = hashGenerator.newHasher(hashAlgorithm);
+        BlockHasher blockHasher = new BlockHasher(hashAlgorithm, blockSize);
+        try (FileChannel partChannel = FileChannel.open(partLocation.path(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long position = partFile.getOffset();
+            long end = position + partLocation.size();
+            long writePosition = partLocation.position();
+            while (position < end) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+                position += partHashExecutor.readFully(inputChannel, buffer, position);
+                buffer.flip();
+                partHasher.update(buffer.duplicate());
+                blockHasher.update(buffer);
+                while (buffer.hasRemaining()) {
+                    writePosition += partChannel.write(buffer, writePosition);
+                }
+            }
+        }
+        List<byte[]> blockHashes = blockHasher.finish();
+        blockHashStore.write(store, partFileName, blockHashes);
+        return partFile.setFileHash(hashGenerator.toHex(partHasher.digest()))
+                .setMerkleRoot(hashGenerator.toHex(MerkleTree.root(hashAlgorithm, blockHashes)));
+    }
+}
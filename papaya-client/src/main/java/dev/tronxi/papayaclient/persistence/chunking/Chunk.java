@@ -0,0 +1,4 @@
+package dev.tronxi.papayaclient.persistence.chunking;
+
+public record Chunk(long position, long size) {
+}
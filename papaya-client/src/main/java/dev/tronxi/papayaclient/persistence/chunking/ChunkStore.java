@@ -0,0 +1,87 @@
+package dev.tronxi.papayaclient.persistence.chunking;
+
+import dev.tronxi.papayaclient.persistence.papayafile.PartFile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.logging.Logger;
+
+@Component
+public class ChunkStore {
+
+    private static final Logger logger = Logger.getLogger(ChunkStore.class.getName());
+    private static final String CHUNKS_DIRECTORY = "chunks";
+
+    public Optional<Path> chunkPath(Path storePath, PartFile partFile) {
+        if (!partFile.getHashAlgorithm().isCollisionResistant()) {
+            return Optional.empty();
+        }
+        return Optional.of(storePath.resolve(CHUNKS_DIRECTORY).resolve(partFile.getHashAlgorithm().name()).resolve(partFile.getFileHash()));
+    }
+
+    public void share(Path storePath, Path partPath, PartFile partFile) {
+        Optional<Path> maybeChunkPath = chunkPath(storePath, partFile);
+        if (maybeChunkPath.isEmpty()) {
+            return;
+        }
+        Path chunkPath = maybeChunkPath.get();
+        try {
+            if (Files.exists(chunkPath)) {
+                if (Files.isSameFile(chunkPath, partPath)) {
+                    return;
+                }
+                Path tempPath = Files.createTempFile(partPath.getParent(), partPath.getFileName() + ".", ".tmp");
+                Files.delete(tempPath);
+                Files.createLink(tempPath, chunkPath);
+                Files.move(tempPath, partPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                logger.info("Deduplicated part: " + partPath + " with chunk: " + chunkPath.getFileName());
+            } else {
+                Files.createDirectories(chunkPath.getParent());
+                Files.createLink(chunkPath, partPath);
+            }
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.severe("Could not share chunk " + chunkPath.getFileName() + ": " + e.getMessage());
+        }
+    }
+
+    public boolean reuse(Path storePath, Path partPath, PartFile partFile) {
+        Optional<Path> maybeChunkPath = chunkPath(storePath, partFile);
+        if (maybeChunkPath.isEmpty() || !Files.exists(maybeChunkPath.get()) || Files.exists(partPath)) {
+            return false;
+        }
+        Path chunkPath = maybeChunkPath.get();
+        try {
+            Files.createLink(partPath, chunkPath);
+            logger.info("Reused chunk: " + chunkPath.getFileName() + " for part: " + partPath);
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.severe("Could not reuse chunk " + chunkPath.getFileName() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    public void prune(Path storePath) {
+        Path chunksPath = storePath.resolve(CHUNKS_DIRECTORY);
+        if (!Files.isDirectory(chunksPath)) {
+            return;
+        }
+        try (DirectoryStream<Path> algorithms = Files.newDirectoryStream(chunksPath)) {
+            for (Path algorithm : algorithms) {
+                try (DirectoryStream<Path> chunks = Files.newDirectoryStream(algorithm)) {
+                    for (Path chunk : chunks) {
+                        if (((Number) Files.getAttribute(chunk, "unix:nlink")).intValue() <= 1) {
+                            Files.deleteIfExists(chunk);
+                        }
+                    }
+                }
+            }
+        } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+            logger.severe("Could not prune chunks: " + e.getMessage());
+        }
+    }
+}
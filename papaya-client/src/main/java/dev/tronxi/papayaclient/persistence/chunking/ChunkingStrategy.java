@@ -0,0 +1,12 @@
+package dev.tronxi.papayaclient.persistence.chunking;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+public interface ChunkingStrategy {
+
+    long partSize(long fileSize);
+
+    List<Chunk> chunk(FileChannel fileChannel) throws IOException;
+}
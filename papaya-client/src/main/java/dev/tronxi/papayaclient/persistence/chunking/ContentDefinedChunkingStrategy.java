@@ -0,0 +1,95 @@
+package dev.tronxi.papayaclient.persistence.chunking;
+
+import dev.tronxi.papayaclient.persistence.PartSizeCalculator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+@Service
+@ConditionalOnProperty(name = "papaya.split.chunking", havingValue = "cdc")
+public class ContentDefinedChunkingStrategy implements ChunkingStrategy {
+
+    private static final long GEAR_SEED = 0x7061706179614344L;
+    private static final long[] GEAR = gearTable();
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final int NORMALIZATION = 2;
+    static final long MAX_CHUNK_SIZE = 128 * 1024 * 1024;
+
+    private final PartSizeCalculator partSizeCalculator;
+
+    public ContentDefinedChunkingStrategy(PartSizeCalculator partSizeCalculator) {
+        this.partSizeCalculator = partSizeCalculator;
+    }
+
+    @Override
+    public long partSize(long fileSize) {
+        return 0;
+    }
+
+    @Override
+    public List<Chunk> chunk(FileChannel fileChannel) throws IOException {
+        long size = fileChannel.size();
+        return chunk(fileChannel, size, averageSize(size));
+    }
+
+    long averageSize(long fileSize) {
+        return Long.highestOneBit(Math.max(64, partSizeCalculator.calculate(fileSize)));
+    }
+
+    List<Chunk> chunk(FileChannel fileChannel, long size, long averageSize) throws IOException {
+        return chunk(fileChannel, size, averageSize / 4, averageSize, Math.min(averageSize * 4, MAX_CHUNK_SIZE));
+    }
+
+    List<Chunk> chunk(FileChannel fileChannel, long size, long minSize, long averageSize, long maxSize) throws IOException {
+        int bits = Long.numberOfTrailingZeros(averageSize);
+        long smallMask = -1L << (64 - bits - NORMALIZATION);
+        long largeMask = -1L << (64 - bits + NORMALIZATION);
+        List<Chunk> chunks = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        long chunkStart = 0;
+        long position = 0;
+        long hash = 0;
+        while (position < size) {
+            buffer.clear();
+            int read = fileChannel.read(buffer, position);
+            if (read == -1) {
+                break;
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                int value = buffer.get() & 0xff;
+                position++;
+                long length = position - chunkStart;
+                if (length <= minSize) {
+                    continue;
+                }
+                hash = (hash << 1) + GEAR[value];
+                long mask = length < averageSize ? smallMask : largeMask;
+                if ((hash & mask) == 0 || length >= maxSize) {
+                    chunks.add(new Chunk(chunkStart, length));
+                    chunkStart = position;
+                    hash = 0;
+                }
+            }
+        }
+        if (chunkStart < position) {
+            chunks.add(new Chunk(chunkStart, position - chunkStart));
+        }
+        return chunks;
+    }
+
+    private static long[] gearTable() {
+        SplittableRandom random = new SplittableRandom(GEAR_SEED);
+        long[] gear = new long[256];
+        for (int i = 0; i < gear.length; i++) {
+            gear[i] = random.nextLong();
+        }
+        return gear;
+    }
+}
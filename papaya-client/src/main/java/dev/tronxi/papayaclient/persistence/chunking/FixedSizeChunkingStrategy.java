@@ -0,0 +1,37 @@
+package dev.tronxi.papayaclient.persistence.chunking;
+
+import dev.tronxi.papayaclient.persistence.PartSizeCalculator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+@ConditionalOnProperty(name = "papaya.split.chunking", havingValue = "fixed", matchIfMissing = true)
+public class FixedSizeChunkingStrategy implements ChunkingStrategy {
+
+    private final PartSizeCalculator partSizeCalculator;
+
+    public FixedSizeChunkingStrategy(PartSizeCalculator partSizeCalculator) {
+        this.partSizeCalculator = partSizeCalculator;
+    }
+
+    @Override
+    public long partSize(long fileSize) {
+        return partSizeCalculator.calculate(fileSize);
+    }
+
+    @Override
+    public List<Chunk> chunk(FileChannel fileChannel) throws IOException {
+        long size = fileChannel.size();
+        long partSize = partSize(size);
+        List<Chunk> chunks = new ArrayList<>();
+        for (long position = 0; partSize > 0 && position < size; position += partSize) {
+            chunks.add(new Chunk(position, Math.min(partSize, size - position)));
+        }
+        return chunks;
+    }
+}
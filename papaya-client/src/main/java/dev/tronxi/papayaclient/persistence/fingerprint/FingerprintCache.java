@@ -0,0 +1,108 @@
+package dev.tronxi.papayaclient.persistence.fingerprint;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.tronxi.papayaclient.persistence.PartHashExecutor;
+import dev.tronxi.papayaclient.persistence.papayafile.PapayaFile;
+import dev.tronxi.papayaclient.persistence.papayafile.PartFile;
+import dev.tronxi.papayaclient.persistence.storage.PartLocation;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+@Component
+public class FingerprintCache {
+
+    private static final Logger logger = Logger.getLogger(FingerprintCache.class.getName());
+    private static final String EXTENSION = ".fingerprints";
+
+    private final PartHashExecutor partHashExecutor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public FingerprintCache(PartHashExecutor partHashExecutor) {
+        this.partHashExecutor = partHashExecutor;
+    }
+
+    public List<Optional<String>> hashParts(Path store, PapayaFile papayaFile, Function<PartFile, Optional<PartLocation>> locator, boolean deepVerify) throws IOException {
+        Map<String, PartFingerprint> cached = deepVerify ? Map.of() : read(store, papayaFile.getFileId());
+        List<Optional<PartFingerprint>> fingerprints = partHashExecutor.invokeOrdered(papayaFile.getPartFiles(), (partFile, buffer) -> {
+            Optional<PartLocation> maybePartLocation = locator.apply(partFile);
+            if (maybePartLocation.isEmpty()) {
+                return Optional.empty();
+            }
+            try {
+                PartFingerprint current = fingerprint(partFile.getFileName(), maybePartLocation.get(), null);
+                PartFingerprint previous = cached.get(partFile.getFileName());
+                if (previous != null && previous.matches(current)) {
+                    return Optional.of(previous);
+                }
+                return Optional.of(current.withHash(partHashExecutor.hashPart(maybePartLocation.get(), partFile.getHashAlgorithm(), buffer)));
+            } catch (IOException e) {
+                return Optional.empty();
+            }
+        });
+        long reused = fingerprints.stream()
+                .flatMap(Optional::stream)
+                .filter(fingerprint -> fingerprint == cached.get(fingerprint.partFileName()))
+                .count();
+        logger.info("Fingerprints reused: " + reused + " of " + papayaFile.getPartFiles().size() + " deepVerify: " + deepVerify);
+        try {
+            write(store, papayaFile.getFileId(), fingerprints.stream().flatMap(Optional::stream).toList());
+        } catch (IOException e) {
+            logger.severe(e.getMessage());
+        }
+        return fingerprints.stream().map(maybeFingerprint -> maybeFingerprint.map(PartFingerprint::hash)).toList();
+    }
+
+    public void record(Path store, PapayaFile papayaFile, Function<PartFile, Optional<PartLocation>> locator) {
+        List<PartFingerprint> fingerprints = new ArrayList<>();
+        try {
+            for (PartFile partFile : papayaFile.getPartFiles()) {
+                Optional<PartLocation> maybePartLocation = locator.apply(partFile);
+                if (maybePartLocation.isPresent()) {
+                    fingerprints.add(fingerprint(partFile.getFileName(), maybePartLocation.get(), partFile.getFileHash()));
+                }
+            }
+            write(store, papayaFile.getFileId(), fingerprints);
+        } catch (IOException e) {
+            logger.severe(e.getMessage());
+        }
+    }
+
+    private PartFingerprint fingerprint(String partFileName, PartLocation partLocation, String hash) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(partLocation.path(), BasicFileAttributes.class);
+        Object fileKey = attributes.fileKey();
+        return new PartFingerprint(partFileName, partLocation.position(), partLocation.size(), attributes.size(),
+                attributes.lastModifiedTime().toMillis(), fileKey != null ? fileKey.toString() : null, hash);
+    }
+
+    private Map<String, PartFingerprint> read(Path store, String fileId) {
+        Path path = store.resolve(fileId + EXTENSION);
+        if (!Files.exists(path)) {
+            return Map.of();
+        }
+        try {
+            Map<String, PartFingerprint> fingerprints = new HashMap<>();
+            objectMapper.readValue(path.toFile(), new TypeReference<List<PartFingerprint>>() {
+            }).forEach(fingerprint -> fingerprints.put(fingerprint.partFileName(), fingerprint));
+            return fingerprints;
+        } catch (IOException e) {
+            logger.severe(e.getMessage());
+            return Map.of();
+        }
+    }
+
+    private void write(Path store, String fileId, List<PartFingerprint> fingerprints) throws IOException {
+        Path path = store.resolve(fileId + EXTENSION);
+        Path tempPath = Files.createTempFile(store, fileId + EXTENSION + ".", ".tmp");
+        objectMapper.writeValue(tempPath.toFile(), fingerprints);
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
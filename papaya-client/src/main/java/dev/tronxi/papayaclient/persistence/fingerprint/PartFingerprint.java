@@ -0,0 +1,17 @@
+package dev.tronxi.papayaclient.persistence.fingerprint;
+
+public record PartFingerprint(String partFileName, long position, long size, long fileSize, long modifiedTime,
+                              String fileKey, String hash) {
+
+    public boolean matches(PartFingerprint other) {
+        return position == other.position
+                && size == other.size
+                && fileSize == other.fileSize
+                && modifiedTime == other.modifiedTime
+                && String.valueOf(fileKey).equals(String.valueOf(other.fileKey));
+    }
+
+    public PartFingerprint withHash(String hash) {
+        return new PartFingerprint(partFileName, position, size, fileSize, modifiedTime, fileKey, hash);
+    }
+}
@@ -0,0 +1,48 @@
+package dev.tronxi.papayaclient.persistence.hash;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BlockHasher {
+
+    private final HashAlgorithm hashAlgorithm;
+    private final int blockSize;
+    private final List<byte[]> blockHashes = new ArrayList<>();
+    private PartHasher current;
+    private int currentLength;
+
+    public BlockHasher(HashAlgorithm hashAlgorithm, int blockSize) {
+        this.hashAlgorithm = hashAlgorithm;
+        this.blockSize = blockSize;
+    }
+
+    public void update(ByteBuffer content) {
+        ByteBuffer input = content.duplicate();
+        while (input.hasRemaining()) {
+            if (current == null) {
+                current = hashAlgorithm.newHasher();
+                currentLength = 0;
+            }
+            int length = Math.min(blockSize - currentLength, input.remaining());
+            current.update(input.slice(input.position(), length));
+            input.position(input.position() + length);
+            currentLength += length;
+            if (currentLength == blockSize) {
+                completeBlock();
+            }
+        }
+    }
+
+    public List<byte[]> finish() {
+        if (current != null) {
+            completeBlock();
+        }
+        return blockHashes;
+    }
+
+    private void completeBlock() {
+        blockHashes.add(current.digest());
+        current = null;
+    }
+}
@@ -0,0 +1,20 @@
+package dev.tronxi.papayaclient.persistence.hash;
+
+public enum HashAlgorithm {
+
+    MD5,
+    SHA256,
+    XXH64;
+
+    public PartHasher newHasher() {
+        return switch (this) {
+            case MD5 -> new MessageDigestPartHasher("MD5");
+            case SHA256 -> new MessageDigestPartHasher("SHA-256");
+            case XXH64 -> new XxHash64PartHasher();
+        };
+    }
+
+    public boolean isCollisionResistant() {
+        return this == SHA256;
+    }
+}
@@ -0,0 +1,64 @@
+package dev.tronxi.papayaclient.persistence.hash;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class MerkleTree {
+
+    public static final int DEFAULT_BLOCK_SIZE = 16 * 1024;
+    private static final byte NODE_PREFIX = 1;
+
+    private MerkleTree() {
+    }
+
+    public static byte[] root(HashAlgorithm hashAlgorithm, List<byte[]> blockHashes) {
+        if (blockHashes.isEmpty()) {
+            return hashAlgorithm.newHasher().digest();
+        }
+        List<byte[]> level = blockHashes;
+        while (level.size() > 1) {
+            List<byte[]> parents = new ArrayList<>((level.size() + 1) / 2);
+            for (int i = 0; i < level.size(); i += 2) {
+                if (i + 1 == level.size()) {
+                    parents.add(level.get(i));
+                } else {
+                    PartHasher partHasher = hashAlgorithm.newHasher();
+                    partHasher.update(ByteBuffer.wrap(new byte[]{NODE_PREFIX}));
+                    partHasher.update(ByteBuffer.wrap(level.get(i)));
+                    partHasher.update(ByteBuffer.wrap(level.get(i + 1)));
+                    parents.add(partHasher.digest());
+                }
+            }
+            level = parents;
+        }
+        return level.getFirst();
+    }
+
+    public static ByteBuffer encode(List<byte[]> blockHashes) {
+        int digestLength = blockHashes.isEmpty() ? 0 : blockHashes.getFirst().length;
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + blockHashes.size() * digestLength);
+        buffer.putInt(blockHashes.size());
+        blockHashes.forEach(buffer::put);
+        return buffer.flip();
+    }
+
+    public static List<byte[]> decode(ByteBuffer buffer, int digestLength) {
+        int count = buffer.getInt();
+        List<byte[]> blockHashes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] blockHash = new byte[digestLength];
+            buffer.get(blockHash);
+            blockHashes.add(blockHash);
+        }
+        return blockHashes;
+    }
+
+    public static int blockCount(long size, int blockSize) {
+        return (int) ((size + blockSize - 1) / blockSize);
+    }
+
+    public static int digestLength(HashAlgorithm hashAlgorithm) {
+        return hashAlgorithm.newHasher().digest().length;
+    }
+}
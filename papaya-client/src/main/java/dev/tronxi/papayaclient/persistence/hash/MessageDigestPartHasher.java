@@ -0,0 +1,28 @@
+package dev.tronxi.papayaclient.persistence.hash;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+public class MessageDigestPartHasher implements PartHasher {
+
+    private final MessageDigest messageDigest;
+
+    public MessageDigestPartHasher(String algorithm) {
+        try {
+            this.messageDigest = MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void update(ByteBuffer content) {
+        messageDigest.update(content);
+    }
+
+    @Override
+    public byte[] digest() {
+        return messageDigest.digest();
+    }
+}
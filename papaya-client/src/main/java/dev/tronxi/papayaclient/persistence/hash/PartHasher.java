@@ -0,0 +1,10 @@
+package dev.tronxi.papayaclient.persistence.hash;
+
+import java.nio.ByteBuffer;
+
+public interface PartHasher {
+
+    void update(ByteBuffer content);
+
+    byte[] digest();
+}
@@ -0,0 +1,112 @@
+package dev.tronxi.papayaclient.persistence.hash;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class XxHash64PartHasher implements PartHasher {
+
+    private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME64_3 = 0x165667B19E3779F9L;
+    private static final long PRIME64_4 = 0x85EBCA77C2B2CA63L;
+    private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+    private static final int STRIPE_LENGTH = 32;
+
+    private final ByteBuffer stripe = ByteBuffer.allocate(STRIPE_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+    private long v1;
+    private long v2;
+    private long v3;
+    private long v4;
+    private long totalLength;
+
+    public XxHash64PartHasher() {
+        reset();
+    }
+
+    private void reset() {
+        v1 = PRIME64_1 + PRIME64_2;
+        v2 = PRIME64_2;
+        v3 = 0;
+        v4 = -PRIME64_1;
+        totalLength = 0;
+        stripe.clear();
+    }
+
+    @Override
+    public void update(ByteBuffer content) {
+        ByteBuffer input = content.slice().order(ByteOrder.LITTLE_ENDIAN);
+        totalLength += input.remaining();
+        content.position(content.limit());
+        if (stripe.position() > 0) {
+            while (stripe.hasRemaining() && input.hasRemaining()) {
+                stripe.put(input.get());
+            }
+            if (stripe.hasRemaining()) {
+                return;
+            }
+            stripe.flip();
+            consumeStripe(stripe);
+            stripe.clear();
+        }
+        while (input.remaining() >= STRIPE_LENGTH) {
+            consumeStripe(input);
+        }
+        stripe.put(input);
+    }
+
+    private void consumeStripe(ByteBuffer input) {
+        v1 = round(v1, input.getLong());
+        v2 = round(v2, input.getLong());
+        v3 = round(v3, input.getLong());
+        v4 = round(v4, input.getLong());
+    }
+
+    @Override
+    public byte[] digest() {
+        long hash;
+        if (totalLength >= STRIPE_LENGTH) {
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = mergeRound(hash, v1);
+            hash = mergeRound(hash, v2);
+            hash = mergeRound(hash, v3);
+            hash = mergeRound(hash, v4);
+        } else {
+            hash = v3 + PRIME64_5;
+        }
+        hash += totalLength;
+
+        ByteBuffer tail = stripe.flip();
+        while (tail.remaining() >= 8) {
+            hash ^= round(0, tail.getLong());
+            hash = Long.rotateLeft(hash, 27) * PRIME64_1 + PRIME64_4;
+        }
+        if (tail.remaining() >= 4) {
+            hash ^= (tail.getInt() & 0xFFFFFFFFL) * PRIME64_1;
+            hash = Long.rotateLeft(hash, 23) * PRIME64_2 + PRIME64_3;
+        }
+        while (tail.hasRemaining()) {
+            hash ^= (tail.get() & 0xFFL) * PRIME64_5;
+            hash = Long.rotateLeft(hash, 11) * PRIME64_1;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME64_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME64_3;
+        hash ^= hash >>> 32;
+
+        reset();
+        return ByteBuffer.allocate(Long.BYTES).putLong(hash).array();
+    }
+
+    private static long round(long accumulator, long input) {
+        accumulator += input * PRIME64_2;
+        accumulator = Long.rotateLeft(accumulator, 31);
+        return accumulator * PRIME64_1;
+    }
+
+    private static long mergeRound(long accumulator, long value) {
+        accumulator ^= round(0, value);
+        return accumulator * PRIME64_1 + PRIME64_4;
+    }
+}
@@ -0,0 +1,145 @@
+package dev.tronxi.papayaclient.persistence.incoming;
+
+import dev.tronxi.papayaclient.persistence.HashGenerator;
+import dev.tronxi.papayaclient.persistence.hash.HashAlgorithm;
+import dev.tronxi.papayaclient.persistence.hash.MerkleTree;
+import dev.tronxi.papayaclient.persistence.hash.PartHasher;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+public class IncomingPart implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(IncomingPart.class.getName());
+    private static final int MAX_BLOCK_HASHES_LENGTH = 16 * 1024 * 1024;
+
+    private final Path path;
+    private final FileChannel fileChannel;
+    private final PartHasher partHasher;
+    private final HashGenerator hashGenerator;
+    private final HashAlgorithm hashAlgorithm;
+    private final int blockSize;
+    private final String merkleRoot;
+    private final List<Integer> badBlocks = new ArrayList<>();
+    private ByteBuffer blockHashesBuffer;
+    private List<byte[]> blockHashes = List.of();
+    private PartHasher blockHasher;
+    private int blockLength;
+    private int blockIndex;
+    private long size;
+    private boolean finished;
+
+    public IncomingPart(Path directory, String partFileName, HashGenerator hashGenerator, HashAlgorithm hashAlgorithm) throws IOException {
+        this(directory, partFileName, hashGenerator, hashAlgorithm, 0, null);
+    }
+
+    public IncomingPart(Path directory, String partFileName, HashGenerator hashGenerator, HashAlgorithm hashAlgorithm, int blockSize, String merkleRoot) throws IOException {
+        Files.createDirectories(directory);
+        this.path = Files.createTempFile(directory, partFileName + ".", ".tmp");
+        this.fileChannel = FileChannel.open(path, StandardOpenOption.WRITE);
+        this.hashGenerator = hashGenerator;
+        this.hashAlgorithm = hashAlgorithm;
+        this.partHasher = hashGenerator.newHasher(hashAlgorithm);
+        this.blockSize = blockSize;
+        this.merkleRoot = merkleRoot;
+        if (merkleRoot != null && blockSize > 0) {
+            blockHashesBuffer = ByteBuffer.allocate(Integer.BYTES);
+        }
+    }
+
+    public void write(ByteBuffer content) throws IOException {
+        if (blockHashesBuffer != null) {
+            readBlockHashes(content);
+            if (blockHashesBuffer != null) {
+                return;
+            }
+        }
+        partHasher.update(content.duplicate());
+        if (!blockHashes.isEmpty()) {
+            verifyBlocks(content.duplicate());
+        }
+        size += content.remaining();
+        while (content.hasRemaining()) {
+            fileChannel.write(content);
+        }
+    }
+
+    private void readBlockHashes(ByteBuffer content) throws IOException {
+        while (blockHashesBuffer.hasRemaining() && content.hasRemaining()) {
+            blockHashesBuffer.put(content.get());
+            if (!blockHashesBuffer.hasRemaining() && blockHashesBuffer.capacity() == Integer.BYTES) {
+                long length = (long) blockHashesBuffer.flip().getInt() * MerkleTree.digestLength(hashAlgorithm);
+                if (length < 0 || length > MAX_BLOCK_HASHES_LENGTH) {
+                    throw new IOException("Invalid block hashes length: " + length);
+                }
+                blockHashesBuffer = ByteBuffer.allocate(Integer.BYTES + (int) length).put(blockHashesBuffer.rewind());
+            }
+        }
+        if (!blockHashesBuffer.hasRemaining()) {
+            List<byte[]> receivedBlockHashes = MerkleTree.decode(blockHashesBuffer.flip(), MerkleTree.digestLength(hashAlgorithm));
+            blockHashesBuffer = null;
+            if (hashGenerator.toHex(MerkleTree.root(hashAlgorithm, receivedBlockHashes)).equals(merkleRoot)) {
+                blockHashes = receivedBlockHashes;
+            } else {
+                logger.severe("Block hashes do not match merkle root: " + path.getFileName());
+            }
+        }
+    }
+
+    private void verifyBlocks(ByteBuffer content) {
+        while (content.hasRemaining()) {
+            if (blockHasher == null) {
+                blockHasher = hashGenerator.newHasher(hashAlgorithm);
+                blockLength = 0;
+            }
+            int length = Math.min(blockSize - blockLength, content.remaining());
+            blockHasher.update(content.slice(content.position(), length));
+            content.position(content.position() + length);
+            blockLength += length;
+            if (blockLength == blockSize) {
+                completeBlock();
+            }
+        }
+    }
+
+    private void completeBlock() {
+        byte[] blockHash = blockHasher.digest();
+        if (blockIndex >= blockHashes.size() || !Arrays.equals(blockHash, blockHashes.get(blockIndex))) {
+            badBlocks.add(blockIndex);
+        }
+        blockIndex++;
+        blockHasher = null;
+    }
+
+    public StagedPart finish() throws IOException {
+        fileChannel.close();
+        finished = true;
+        if (blockHasher != null) {
+            completeBlock();
+        }
+        for (int missing = blockIndex; missing < blockHashes.size(); missing++) {
+            badBlocks.add(missing);
+        }
+        return new StagedPart(path, size, hashGenerator.toHex(partHasher.digest()), blockHashes, badBlocks);
+    }
+
+    @Override
+    public void close() {
+        if (!finished) {
+            try {
+                fileChannel.close();
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                logger.severe(e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package dev.tronxi.papayaclient.persistence.incoming;
+
+import java.nio.file.Path;
+import java.util.List;
+
+public record StagedPart(Path path, long size, String hash, List<byte[]> blockHashes, List<Integer> badBlocks) {
+
+    public StagedPart(Path path, long size, String hash) {
+        this(path, size, hash, List.of(), List.of());
+    }
+
+    public boolean isRepairable() {
+        return !blockHashes.isEmpty() && !badBlocks.isEmpty();
+    }
+}
@@ -1,16 +1,25 @@
 package dev.tronxi.papayaclient.persistence.papayafile;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import dev.tronxi.papayaclient.persistence.hash.HashAlgorithm;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
+@JsonIgnoreProperties(ignoreUnknown = true)
 public class PapayaFile {
     private String fileName;
     private String fileId;
+    private HashAlgorithm hashAlgorithm;
+    private int blockSize;
+    private long fileSize;
+    private long partSize;
     private List<PartFile> partFiles;
 
-    public PapayaFile(String fileName) {
+    public PapayaFile(String fileName, HashAlgorithm hashAlgorithm) {
         this.fileName = fileName;
+        this.hashAlgorithm = hashAlgorithm;
         this.fileId = UUID.randomUUID().toString().replace("-", "").substring(0, 32);
         partFiles = new ArrayList<>();
     }
@@ -36,6 +45,42 @@ public class PapayaFile {
         return this;
     }
 
+    public HashAlgorithm getHashAlgorithm() {
+        return hashAlgorithm != null ? hashAlgorithm : HashAlgorithm.MD5;
+    }
+
+    public PapayaFile setHashAlgorithm(HashAlgorithm hashAlgorithm) {
+        this.hashAlgorithm = hashAlgorithm;
+        return this;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public PapayaFile setBlockSize(int blockSize) {
+        this.blockSize = blockSize;
+        return this;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public PapayaFile setFileSize(long fileSize) {
+        this.fileSize = fileSize;
+        return this;
+    }
+
+    public long getPartSize() {
+        return partSize;
+    }
+
+    public PapayaFile setPartSize(long partSize) {
+        this.partSize = partSize;
+        return this;
+    }
+
     public List<PartFile> getPartFiles() {
         return partFiles;
     }
@@ -49,6 +94,10 @@ public class PapayaFile {
         return "PapayaFile{" +
                 "fileName='" + fileName + '\'' +
                 ", fileHash='" + fileId + '\'' +
+                ", hashAlgorithm=" + hashAlgorithm +
+                ", blockSize=" + blockSize +
+                ", fileSize=" + fileSize +
+                ", partSize=" + partSize +
                 ", partFiles=" + partFiles +
                 '}';
     }
@@ -1,12 +1,21 @@
 package dev.tronxi.papayaclient.persistence.papayafile;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import dev.tronxi.papayaclient.persistence.hash.HashAlgorithm;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
 public class PartFile {
     private String fileName;
     private String fileHash;
+    private HashAlgorithm hashAlgorithm;
+    private String merkleRoot;
+    private long offset;
+    private long size;
 
-    public PartFile(String fileName, String fileHash) {
+    public PartFile(String fileName, String fileHash, HashAlgorithm hashAlgorithm) {
         this.fileName = fileName;
         this.fileHash = fileHash;
+        this.hashAlgorithm = hashAlgorithm;
     }
 
     public PartFile() {
@@ -21,6 +30,42 @@ public class PartFile {
         return this;
     }
 
+    public HashAlgorithm getHashAlgorithm() {
+        return hashAlgorithm != null ? hashAlgorithm : HashAlgorithm.MD5;
+    }
+
+    public PartFile setHashAlgorithm(HashAlgorithm hashAlgorithm) {
+        this.hashAlgorithm = hashAlgorithm;
+        return this;
+    }
+
+    public String getMerkleRoot() {
+        return merkleRoot;
+    }
+
+    public PartFile setMerkleRoot(String merkleRoot) {
+        this.merkleRoot = merkleRoot;
+        return this;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public PartFile setOffset(long offset) {
+        this.offset = offset;
+        return this;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public PartFile setSize(long size) {
+        this.size = size;
+        return this;
+    }
+
     public String getFileName() {
         return fileName;
     }
@@ -35,6 +80,10 @@ public class PartFile {
         return "PartFile{" +
                 "fileName='" + fileName + '\'' +
                 ", fileHash='" + fileHash + '\'' +
+                ", hashAlgorithm=" + hashAlgorithm +
+                ", merkleRoot='" + merkleRoot + '\'' +
+                ", offset=" + offset +
+                ", size=" + size +
                 '}';
     }
 }
@@ -4,10 +4,12 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 @Entity
+@Table(indexes = @Index(name = "papaya_status_file_status_idx", columnList = "status, joinStatus"))
 public class PapayaStatusFile {
 
     @Id
@@ -20,24 +22,130 @@ public class PapayaStatusFile {
     @OneToMany(fetch = FetchType.EAGER)
     private List<PartStatusFile> partStatusFiles;
 
+    @Lob
+    private byte[] completion;
+
+    private Integer completedCount;
+
+    private Integer partCount;
+
+    private PapayaStatus status;
+
+    @Transient
+    private BitSet completedParts;
+
     public PapayaStatusFile(String fileName, String fileId) {
         this.fileName = fileName;
         this.fileId = fileId;
         this.joinStatus = JoinStatus.NONE;
         this.partStatusFiles = new ArrayList<>();
+        this.completedParts = new BitSet();
+        this.completion = completedParts.toByteArray();
+        this.completedCount = 0;
     }
 
     public PapayaStatusFile() {
         this.joinStatus = JoinStatus.NONE;
+        this.completedParts = new BitSet();
+    }
+
+    public PapayaStatusFile copy() {
+        PapayaStatusFile copy = new PapayaStatusFile(fileName, fileId);
+        copy.joinStatus = joinStatus;
+        partStatusFiles.forEach(partStatusFile -> copy.partStatusFiles.add(partStatusFile.copy()));
+        copy.completedParts = (BitSet) completedParts.clone();
+        copy.completion = completion;
+        copy.completedCount = completedCount;
+        return copy;
+    }
+
+    @PostLoad
+    private void loadCompletion() {
+        if (completion == null || completedCount == null) {
+            rebuildCompletion();
+        } else {
+            completedParts = BitSet.valueOf(completion);
+        }
+        updateStatus();
+    }
+
+    @PrePersist
+    @PreUpdate
+    private void updateStatus() {
+        partCount = getPartCount();
+        status = getStatus();
+    }
+
+    private void rebuildCompletion() {
+        completedParts = new BitSet();
+        if (partStatusFiles != null) {
+            partStatusFiles.stream()
+                    .filter(partStatusFile -> partStatusFile.getStatus() == PapayaStatus.COMPLETE)
+                    .forEach(partStatusFile -> completedParts.set(partIndex(partStatusFile)));
+        }
+        completion = completedParts.toByteArray();
+        completedCount = completedParts.cardinality();
     }
 
     public PapayaStatus getStatus() {
-        for (PartStatusFile partStatusFile : partStatusFiles) {
-            if (partStatusFile.getStatus() != PapayaStatus.COMPLETE) {
-                return PapayaStatus.INCOMPLETE;
-            }
+        return getCompletedCount() >= getPartCount() ? PapayaStatus.COMPLETE : PapayaStatus.INCOMPLETE;
+    }
+
+    public int getPartCount() {
+        return partStatusFiles != null ? partStatusFiles.size() : 0;
+    }
+
+    public int getCompletedCount() {
+        return completedCount != null ? completedCount : 0;
+    }
+
+    public double getProgress() {
+        return getPartCount() == 0 ? 1 : (double) getCompletedCount() / getPartCount();
+    }
+
+    public boolean isComplete(String partFileName) {
+        return completedParts.get(Integer.parseInt(partFileName));
+    }
+
+    public List<String> getCompletedParts() {
+        return completedParts.stream().mapToObj(String::valueOf).toList();
+    }
+
+    public byte[] getCompletion() {
+        return completion;
+    }
+
+    public boolean markComplete(PartStatusFile partStatusFile) {
+        partStatusFile.setStatus(PapayaStatus.COMPLETE);
+        int partIndex = partIndex(partStatusFile);
+        if (completedParts.get(partIndex)) {
+            return false;
         }
-        return PapayaStatus.COMPLETE;
+        completedParts.set(partIndex);
+        completedCount = getCompletedCount() + 1;
+        completion = completedParts.toByteArray();
+        return true;
+    }
+
+    public void mergeCompletion(byte[] persistedCompletion) {
+        if (persistedCompletion == null) {
+            return;
+        }
+        completedParts.or(BitSet.valueOf(persistedCompletion));
+        int cardinality = completedParts.cardinality();
+        if (cardinality == getCompletedCount()) {
+            return;
+        }
+        completedCount = cardinality;
+        completion = completedParts.toByteArray();
+        partStatusFiles.stream()
+                .filter(partStatusFile -> partStatusFile.getStatus() != PapayaStatus.COMPLETE)
+                .filter(partStatusFile -> completedParts.get(partIndex(partStatusFile)))
+                .forEach(partStatusFile -> partStatusFile.setStatus(PapayaStatus.COMPLETE));
+    }
+
+    private int partIndex(PartStatusFile partStatusFile) {
+        return Integer.parseInt(partStatusFile.getFileName());
     }
 
     public String getFileId() {
@@ -64,11 +172,15 @@ public class PapayaStatusFile {
 
     public PapayaStatusFile setPartStatusFiles(List<PartStatusFile> partStatusFiles) {
         this.partStatusFiles = partStatusFiles;
+        rebuildCompletion();
         return this;
     }
 
     public void addPartStatusFile(PartStatusFile partStatusFile) {
         this.partStatusFiles.add(partStatusFile);
+        if (partStatusFile.getStatus() == PapayaStatus.COMPLETE) {
+            markComplete(partStatusFile);
+        }
     }
 
     @Override
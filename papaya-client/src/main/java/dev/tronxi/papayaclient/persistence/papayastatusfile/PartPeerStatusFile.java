@@ -25,6 +25,12 @@ public class PartPeerStatusFile {
 
     }
 
+    public PartPeerStatusFile copy() {
+        PartPeerStatusFile copy = new PartPeerStatusFile(peer, partPeerStatus, latestUpdateTime);
+        copy.setId(id);
+        return copy;
+    }
+
     public Peer getPeer() {
         return peer;
     }
@@ -31,6 +31,13 @@ public class PartStatusFile {
 
     }
 
+    public PartStatusFile copy() {
+        PartStatusFile copy = new PartStatusFile(fileName, fileHash, status);
+        copy.setId(id);
+        partPeerStatusFiles.forEach(partPeerStatusFile -> copy.addPeer(partPeerStatusFile.copy()));
+        return copy;
+    }
+
     public String getFileHash() {
         return fileHash;
     }
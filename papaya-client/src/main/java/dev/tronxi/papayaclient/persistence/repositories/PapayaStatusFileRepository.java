@@ -1,7 +1,29 @@
 package dev.tronxi.papayaclient.persistence.repositories;
 
+import dev.tronxi.papayaclient.persistence.papayastatusfile.JoinStatus;
+import dev.tronxi.papayaclient.persistence.papayastatusfile.PapayaStatus;
 import dev.tronxi.papayaclient.persistence.papayastatusfile.PapayaStatusFile;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 public interface PapayaStatusFileRepository extends JpaRepository<PapayaStatusFile, String> {
+
+    @Query("select p.fileId from PapayaStatusFile p where p.status = :status")
+    List<String> findFileIdsByStatus(@Param("status") PapayaStatus status);
+
+    @Query("select p.fileId from PapayaStatusFile p where p.status = :status and p.joinStatus <> :joinStatus")
+    List<String> findFileIdsByStatusAndJoinStatusNot(@Param("status") PapayaStatus status, @Param("joinStatus") JoinStatus joinStatus);
+
+    @Query("select p.fileId from PapayaStatusFile p where p.status is null or p.partCount is null")
+    List<String> findFileIdsWithoutStatus();
+
+    @Transactional
+    @Modifying
+    @Query("update PapayaStatusFile p set p.completion = :completion, p.completedCount = :completedCount, p.status = :status where p.fileId = :fileId")
+    int updateCompletion(@Param("fileId") String fileId, @Param("completion") byte[] completion, @Param("completedCount") int completedCount, @Param("status") PapayaStatus status);
 }
@@ -1,7 +1,6 @@
 package dev.tronxi.papayaclient.persistence.services;
 
-import dev.tronxi.papayaclient.persistence.config.Config;
-import dev.tronxi.papayaclient.persistence.repositories.ConfigRepository;
+import dev.tronxi.papayaclient.persistence.store.ConfigStore;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -23,10 +22,10 @@ public class ConfigService {
     @Value("${papaya.useOnlyLocalAddress}")
     private Boolean defaultUseOnlyLocalAddress;
 
-    private final ConfigRepository configRepository;
+    private final ConfigStore configStore;
 
-    public ConfigService(ConfigRepository configRepository) {
-        this.configRepository = configRepository;
+    public ConfigService(ConfigStore configStore) {
+        this.configStore = configStore;
     }
 
     public String getVersion() {
@@ -34,19 +33,17 @@ public class ConfigService {
     }
 
     public Optional<String> retrieveWorkspace() {
-        return configRepository.findById(workspaceName)
-                .map(Config::getValue);
+        return configStore.find(workspaceName);
     }
 
     public String retrieveTracker() {
-        return configRepository.findById(trackerName)
-                .map(Config::getValue)
+        return configStore.find(trackerName)
                 .orElse(defaultTracker);
     }
 
     public Boolean retrieveUseOnlyLocalAddress() {
-        return configRepository.findById(useOnlyLocalAddressName)
-                .map(config -> Boolean.parseBoolean(config.getValue()))
+        return configStore.find(useOnlyLocalAddressName)
+                .map(Boolean::parseBoolean)
                 .orElse(defaultUseOnlyLocalAddress);
     }
 
@@ -63,16 +60,6 @@ public class ConfigService {
     }
 
     private void saveProperty(String name, String value) {
-        Optional<Config> maybeConfig = configRepository.findById(name);
-        Config config;
-        if (maybeConfig.isPresent()) {
-            config = maybeConfig.get();
-            config.setValue(value);
-        } else {
-            config = new Config();
-            config.setName(name);
-            config.setValue(value);
-        }
-        configRepository.save(config);
+        configStore.save(name, value);
     }
 }
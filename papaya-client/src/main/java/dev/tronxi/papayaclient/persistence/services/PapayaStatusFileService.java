@@ -4,66 +4,211 @@ import dev.tronxi.papayaclient.persistence.papayastatusfile.JoinStatus;
 import dev.tronxi.papayaclient.persistence.papayastatusfile.PapayaStatus;
 import dev.tronxi.papayaclient.persistence.papayastatusfile.PapayaStatusFile;
 import dev.tronxi.papayaclient.persistence.papayastatusfile.PartStatusFile;
-import dev.tronxi.papayaclient.persistence.repositories.PapayaStatusFileRepository;
-import dev.tronxi.papayaclient.persistence.repositories.PartPeerStatusFileRepository;
-import dev.tronxi.papayaclient.persistence.repositories.PartStatusFileRepository;
+import dev.tronxi.papayaclient.persistence.store.StatusStore;
+import dev.tronxi.papayaclient.persistence.store.StatusStore.CompletedParts;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
-import java.util.List;
-import java.util.Optional;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
 
 @Service
 public class PapayaStatusFileService {
 
-    private final PapayaStatusFileRepository papayaStatusFileRepository;
-    private final PartStatusFileRepository partStatusFileRepository;
-    private final PartPeerStatusFileRepository partPeerStatusFileRepository;
+    private static final Logger logger = Logger.getLogger(PapayaStatusFileService.class.getName());
+    private static final String JOURNAL_FILE_NAME = "status.journal";
 
-    public PapayaStatusFileService(PapayaStatusFileRepository papayaStatusFileRepository, PartStatusFileRepository partStatusFileRepository, PartPeerStatusFileRepository partPeerStatusFileRepository) {
-        this.papayaStatusFileRepository = papayaStatusFileRepository;
-        this.partStatusFileRepository = partStatusFileRepository;
-        this.partPeerStatusFileRepository = partPeerStatusFileRepository;
+    private final StatusStore statusStore;
+    private final Optional<Path> journalPath;
+
+    private final Map<String, PapayaStatusFile> statusFiles = new HashMap<>();
+    private final Set<String> dirtyFiles = new HashSet<>();
+    private final Map<String, Set<String>> dirtyParts = new HashMap<>();
+    private boolean allLoaded;
+    private StatusJournal statusJournal;
+
+    public PapayaStatusFileService(StatusStore statusStore, ConfigService configService) {
+        this.statusStore = statusStore;
+        this.journalPath = configService.retrieveWorkspace().map(workspace -> Path.of(workspace, JOURNAL_FILE_NAME));
+    }
+
+    @PostConstruct
+    public synchronized void init() {
+        backfillStatus();
+        replayJournal();
+    }
+
+    private void backfillStatus() {
+        List<String> fileIds = statusStore.findFileIdsWithoutStatus();
+        if (fileIds.isEmpty()) {
+            return;
+        }
+        logger.info("Backfilling status columns for " + fileIds.size() + " files");
+        fileIds.forEach(fileId -> loadStatusFile(fileId).ifPresent(papayaStatusFile -> dirtyFiles.add(fileId)));
+        flush();
+    }
+
+    private void replayJournal() {
+        if (journalPath.isEmpty() || !journalPath.get().getParent().toFile().isDirectory()) {
+            return;
+        }
+        try {
+            statusJournal = StatusJournal.open(journalPath.get());
+            statusJournal.getCompletedParts().forEach((fileId, partFileNames) -> loadStatusFile(fileId).ifPresent(papayaStatusFile -> {
+                logger.info("Replaying " + partFileNames.size() + " completed parts for: " + fileId);
+                papayaStatusFile.getPartStatusFiles().stream()
+                        .filter(partStatusFile -> partFileNames.contains(partStatusFile.getFileName()))
+                        .forEach(papayaStatusFile::markComplete);
+                dirtyParts.computeIfAbsent(fileId, id -> new HashSet<>()).addAll(partFileNames);
+            }));
+            flush();
+            if (dirtyParts.isEmpty()) {
+                statusJournal.truncate();
+            }
+        } catch (IOException e) {
+            logger.severe(e.getMessage());
+        }
+    }
+
+    public synchronized void save(PapayaStatusFile papayaStatusFile) {
+        String fileId = papayaStatusFile.getFileId();
+        Optional<PapayaStatusFile> maybeCurrent = loadStatusFile(fileId);
+        maybeCurrent.ifPresent(current -> papayaStatusFile.mergeCompletion(current.getCompletion()));
+        boolean writeThrough = maybeCurrent.isEmpty()
+                || maybeCurrent.get().getJoinStatus() != papayaStatusFile.getJoinStatus()
+                || papayaStatusFile.getPartStatusFiles().stream().anyMatch(partStatusFile -> partStatusFile.getId() == null);
+        if (writeThrough) {
+            statusStore.write(List.of(papayaStatusFile), List.of());
+            dirtyFiles.remove(fileId);
+            dirtyParts.remove(fileId);
+        } else {
+            dirtyFiles.add(fileId);
+        }
+        statusFiles.put(fileId, papayaStatusFile.copy());
+    }
+
+    public synchronized void savePartStatusFile(PapayaStatusFile papayaStatusFile, PartStatusFile partStatusFile) {
+        Optional<PapayaStatusFile> maybeCurrent = loadStatusFile(papayaStatusFile.getFileId());
+        if (maybeCurrent.isEmpty()) {
+            save(papayaStatusFile);
+            return;
+        }
+        PapayaStatusFile current = maybeCurrent.get();
+        if (statusJournal != null) {
+            try {
+                statusJournal.markComplete(papayaStatusFile.getFileId(), partStatusFile.getFileName());
+            } catch (IOException e) {
+                logger.severe(e.getMessage());
+            }
+        }
+        current.mergeCompletion(papayaStatusFile.getCompletion());
+        papayaStatusFile.mergeCompletion(current.getCompletion());
+        dirtyParts.computeIfAbsent(papayaStatusFile.getFileId(), fileId -> new HashSet<>()).add(partStatusFile.getFileName());
     }
 
-    public void save(PapayaStatusFile papayaStatusFile) {
-        papayaStatusFile.getPartStatusFiles().forEach(part -> partPeerStatusFileRepository.saveAll(part.getPartPeerStatusFiles()));
-        partStatusFileRepository.saveAll(papayaStatusFile.getPartStatusFiles());
-        papayaStatusFileRepository.save(papayaStatusFile);
+    @Scheduled(fixedDelayString = "${papaya.status.flushInterval}")
+    public synchronized void flush() {
+        if (dirtyFiles.isEmpty() && dirtyParts.isEmpty()) {
+            return;
+        }
+        try {
+            statusStore.write(dirtyFiles.stream().map(statusFiles::get).toList(), dirtyParts.entrySet().stream()
+                    .filter(entry -> !dirtyFiles.contains(entry.getKey()))
+                    .map(entry -> new CompletedParts(statusFiles.get(entry.getKey()), entry.getValue()))
+                    .toList());
+            logger.info("Flushed status: " + dirtyFiles.size() + " files, " + dirtyParts.size() + " files with completed parts");
+            dirtyFiles.clear();
+            dirtyParts.clear();
+            if (statusJournal != null) {
+                statusJournal.truncate();
+            }
+        } catch (RuntimeException | IOException e) {
+            logger.severe(e.getMessage());
+        }
     }
 
-    public Optional<PapayaStatusFile> findById(String fileId) {
-        return papayaStatusFileRepository.findById(fileId);
+    @PreDestroy
+    public synchronized void close() {
+        flush();
+        if (statusJournal != null) {
+            try {
+                statusJournal.close();
+            } catch (IOException e) {
+                logger.severe(e.getMessage());
+            }
+        }
     }
 
-    public List<PapayaStatusFile> findAllIncomplete() {
-        return papayaStatusFileRepository.findAll().stream()
+    public synchronized Optional<PapayaStatusFile> findById(String fileId) {
+        return loadStatusFile(fileId).map(PapayaStatusFile::copy);
+    }
+
+    public synchronized boolean isPartComplete(String fileId, String partFileName) {
+        return loadStatusFile(fileId)
+                .map(papayaStatusFile -> papayaStatusFile.isComplete(partFileName))
+                .orElse(false);
+    }
+
+    public synchronized List<PapayaStatusFile> findAllIncomplete() {
+        return findCandidates(() -> statusStore.findFileIdsByStatus(PapayaStatus.INCOMPLETE)).stream()
                 .filter(papayaStatusFile -> papayaStatusFile.getStatus().equals(PapayaStatus.INCOMPLETE))
+                .map(PapayaStatusFile::copy)
                 .toList();
     }
 
-    public List<PapayaStatusFile> findAllCompleteAndNotJoined() {
-        return papayaStatusFileRepository.findAll().stream()
+    public synchronized List<PapayaStatusFile> findAllCompleteAndNotJoined() {
+        return findCandidates(() -> statusStore.findFileIdsByStatusAndJoinStatusNot(PapayaStatus.COMPLETE, JoinStatus.COMPLETED)).stream()
                 .filter(papayaStatusFile -> papayaStatusFile.getStatus().equals(PapayaStatus.COMPLETE))
                 .filter(papayaStatusFile -> !papayaStatusFile.getJoinStatus().equals(JoinStatus.COMPLETED))
+                .map(PapayaStatusFile::copy)
                 .toList();
     }
 
-    public List<PapayaStatusFile> findAll() {
-        return papayaStatusFileRepository.findAll();
+    public synchronized List<PapayaStatusFile> findAll() {
+        return loadAll().stream()
+                .map(PapayaStatusFile::copy)
+                .toList();
     }
 
-    public void remove(PapayaStatusFile papayaStatusFile) {
-        papayaStatusFile.getPartStatusFiles().forEach(partStatusFile -> {
-            partStatusFile.setPartPeerStatusFiles(Collections.emptySet());
-            partStatusFileRepository.save(partStatusFile);
-            partPeerStatusFileRepository.deleteAll(partStatusFile.getPartPeerStatusFiles());
-        });
-        List<PartStatusFile> partStatusFilesToRemove = papayaStatusFile.getPartStatusFiles();
-        papayaStatusFile.setPartStatusFiles(Collections.emptyList());
-        papayaStatusFileRepository.save(papayaStatusFile);
-        papayaStatusFileRepository.delete(papayaStatusFile);
-        partStatusFileRepository.deleteAll(partStatusFilesToRemove);
+    public synchronized void remove(PapayaStatusFile papayaStatusFile) {
+        statusFiles.remove(papayaStatusFile.getFileId());
+        dirtyFiles.remove(papayaStatusFile.getFileId());
+        dirtyParts.remove(papayaStatusFile.getFileId());
+        statusStore.remove(papayaStatusFile);
+    }
+
+    private Optional<PapayaStatusFile> loadStatusFile(String fileId) {
+        PapayaStatusFile papayaStatusFile = statusFiles.get(fileId);
+        if (papayaStatusFile == null && !allLoaded) {
+            papayaStatusFile = statusStore.findById(fileId).orElse(null);
+            if (papayaStatusFile != null) {
+                statusFiles.put(fileId, papayaStatusFile);
+            }
+        }
+        return Optional.ofNullable(papayaStatusFile);
+    }
+
+    private List<PapayaStatusFile> findCandidates(Supplier<List<String>> indexedQuery) {
+        Set<String> fileIds = new LinkedHashSet<>(statusFiles.keySet());
+        if (!allLoaded) {
+            fileIds.addAll(indexedQuery.get());
+        }
+        return fileIds.stream()
+                .map(this::loadStatusFile)
+                .flatMap(Optional::stream)
+                .toList();
+    }
 
+    private Collection<PapayaStatusFile> loadAll() {
+        if (!allLoaded) {
+            statusStore.findAll().forEach(papayaStatusFile -> statusFiles.putIfAbsent(papayaStatusFile.getFileId(), papayaStatusFile));
+            allLoaded = true;
+        }
+        return statusFiles.values();
     }
 }
@@ -0,0 +1,60 @@
+package dev.tronxi.papayaclient.persistence.services;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+public class StatusJournal implements AutoCloseable {
+
+    private final FileChannel fileChannel;
+    private final Map<String, Set<String>> completedParts;
+
+    private StatusJournal(FileChannel fileChannel, Map<String, Set<String>> completedParts) {
+        this.fileChannel = fileChannel;
+        this.completedParts = completedParts;
+    }
+
+    public static StatusJournal open(Path path) throws IOException {
+        Map<String, Set<String>> completedParts = new LinkedHashMap<>();
+        if (Files.exists(path)) {
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                String[] entry = line.strip().split(" ");
+                if (entry.length == 2) {
+                    completedParts.computeIfAbsent(entry[0], fileId -> new LinkedHashSet<>()).add(entry[1]);
+                }
+            }
+        }
+        FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        return new StatusJournal(fileChannel, completedParts);
+    }
+
+    public Map<String, Set<String>> getCompletedParts() {
+        return completedParts;
+    }
+
+    public void markComplete(String fileId, String partFileName) throws IOException {
+        ByteBuffer line = ByteBuffer.wrap((fileId + " " + partFileName + "\n").getBytes(StandardCharsets.UTF_8));
+        while (line.hasRemaining()) {
+            fileChannel.write(line);
+        }
+        fileChannel.force(false);
+    }
+
+    public void truncate() throws IOException {
+        fileChannel.truncate(0);
+        fileChannel.force(false);
+        completedParts.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (fileChannel.isOpen()) {
+            fileChannel.close();
+        }
+    }
+}
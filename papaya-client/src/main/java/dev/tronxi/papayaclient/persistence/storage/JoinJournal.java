@@ -0,0 +1,68 @@
+package dev.tronxi.papayaclient.persistence.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+
+public class JoinJournal implements AutoCloseable {
+
+    private final Path path;
+    private final FileChannel fileChannel;
+    private final Set<String> writtenParts;
+
+    private JoinJournal(Path path, FileChannel fileChannel, Set<String> writtenParts) {
+        this.path = path;
+        this.fileChannel = fileChannel;
+        this.writtenParts = writtenParts;
+    }
+
+    public static JoinJournal open(Path path, boolean resume) throws IOException {
+        Set<String> writtenParts = new HashSet<>();
+        if (resume && Files.exists(path)) {
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    writtenParts.add(line.strip());
+                }
+            }
+        }
+        FileChannel fileChannel = resume
+                ? FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)
+                : FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        return new JoinJournal(path, fileChannel, writtenParts);
+    }
+
+    public synchronized boolean isWritten(String partFileName) {
+        return writtenParts.contains(partFileName);
+    }
+
+    public synchronized int writtenCount() {
+        return writtenParts.size();
+    }
+
+    public synchronized void markWritten(String partFileName) throws IOException {
+        ByteBuffer line = ByteBuffer.wrap((partFileName + "\n").getBytes(StandardCharsets.UTF_8));
+        while (line.hasRemaining()) {
+            fileChannel.write(line);
+        }
+        fileChannel.force(false);
+        writtenParts.add(partFileName);
+    }
+
+    public void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (fileChannel.isOpen()) {
+            fileChannel.close();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package dev.tronxi.papayaclient.persistence.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Logger;
+
+@Component
+public class MappedPartCache {
+
+    private static final Logger logger = Logger.getLogger(MappedPartCache.class.getName());
+
+    private final boolean enabled;
+    private final long maxMappedBytes;
+    private final LinkedHashMap<PartLocation, MappedByteBuffer> regions = new LinkedHashMap<>(16, 0.75f, true);
+    private long mappedBytes;
+
+    public MappedPartCache(@Value("${papaya.storage.mmap.enabled}") boolean enabled, @Value("${papaya.storage.mmap.maxMappedBytes}") long maxMappedBytes) {
+        this.enabled = enabled;
+        this.maxMappedBytes = maxMappedBytes;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Optional<ByteBuffer> map(PartLocation partLocation) {
+        if (!enabled || partLocation.size() > Integer.MAX_VALUE) {
+            return Optional.empty();
+        }
+        synchronized (this) {
+            MappedByteBuffer region = regions.get(partLocation);
+            if (region != null) {
+                return Optional.of(region.duplicate());
+            }
+        }
+        try (FileChannel fileChannel = FileChannel.open(partLocation.path(), StandardOpenOption.READ)) {
+            MappedByteBuffer region = fileChannel.map(FileChannel.MapMode.READ_ONLY, partLocation.position(), partLocation.size());
+            synchronized (this) {
+                if (regions.putIfAbsent(partLocation, region) == null) {
+                    mappedBytes += partLocation.size();
+                    evictOverflow();
+                }
+            }
+            return Optional.of(region.duplicate());
+        } catch (IOException e) {
+            logger.severe(e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public synchronized void evict(PartLocation partLocation) {
+        MappedByteBuffer region = regions.remove(partLocation);
+        if (region != null) {
+            mappedBytes -= partLocation.size();
+        }
+    }
+
+    public synchronized void evict(Path directory) {
+        Iterator<Map.Entry<PartLocation, MappedByteBuffer>> iterator = regions.entrySet().iterator();
+        while (iterator.hasNext()) {
+            PartLocation partLocation = iterator.next().getKey();
+            if (partLocation.path().startsWith(directory)) {
+                mappedBytes -= partLocation.size();
+                iterator.remove();
+            }
+        }
+    }
+
+    synchronized long getMappedBytes() {
+        return mappedBytes;
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<PartLocation, MappedByteBuffer>> iterator = regions.entrySet().iterator();
+        while (mappedBytes > maxMappedBytes && iterator.hasNext()) {
+            mappedBytes -= iterator.next().getKey().size();
+            iterator.remove();
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package dev.tronxi.papayaclient.persistence.storage;
+
+import java.nio.file.Path;
+
+public record PartLocation(Path path, long position, long size) {
+}
@@ -0,0 +1,27 @@
+package dev.tronxi.papayaclient.persistence.storage;
+
+import dev.tronxi.papayaclient.persistence.incoming.StagedPart;
+import dev.tronxi.papayaclient.persistence.papayafile.PapayaFile;
+import dev.tronxi.papayaclient.persistence.papayafile.PartFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.Set;
+
+public interface PartStorage {
+
+    void allocate(Path store, PapayaFile papayaFile) throws IOException;
+
+    PartLocation writeLocation(Path store, PapayaFile papayaFile, int partIndex, long offset, long size);
+
+    Optional<PartLocation> locate(Path store, PapayaFile papayaFile, String partFileName, boolean complete);
+
+    void commit(Path store, PapayaFile papayaFile, String partFileName, StagedPart stagedPart) throws IOException;
+
+    void share(Path store, PapayaFile papayaFile, PartFile partFile);
+
+    boolean reuse(Path store, PapayaFile papayaFile, PartFile partFile) throws IOException;
+
+    Path join(Path store, PapayaFile papayaFile, Set<String> verifiedParts, boolean resume) throws IOException;
+}
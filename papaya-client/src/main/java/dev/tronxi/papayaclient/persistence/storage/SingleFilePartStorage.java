@@ -0,0 +1,164 @@
+package dev.tronxi.papayaclient.persistence.storage;
+
+import dev.tronxi.papayaclient.persistence.PartHashExecutor;
+import dev.tronxi.papayaclient.persistence.incoming.StagedPart;
+import dev.tronxi.papayaclient.persistence.chunking.ChunkStore;
+import dev.tronxi.papayaclient.persistence.papayafile.PapayaFile;
+import dev.tronxi.papayaclient.persistence.papayafile.PartFile;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.Set;
+import java.util.logging.Logger;
+
+@Service
+@ConditionalOnProperty(name = "papaya.storage.mode", havingValue = "single-file")
+public class SingleFilePartStorage implements PartStorage {
+
+    private static final Logger logger = Logger.getLogger(SingleFilePartStorage.class.getName());
+
+    private final SplitPartStorage splitPartStorage;
+
+    private final ChunkStore chunkStore;
+
+    public SingleFilePartStorage(PartHashExecutor partHashExecutor, ChunkStore chunkStore) {
+        this.splitPartStorage = new SplitPartStorage(partHashExecutor, chunkStore);
+        this.chunkStore = chunkStore;
+    }
+
+    @Override
+    public void allocate(Path store, PapayaFile papayaFile) throws IOException {
+        if (!isSingleFile(papayaFile)) {
+            splitPartStorage.allocate(store, papayaFile);
+            return;
+        }
+        Path path = store.resolve(papayaFile.getFileName());
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.SPARSE)) {
+            logger.info("Allocating " + papayaFile.getFileSize() + " bytes for: " + path);
+            if (papayaFile.getFileSize() > 0) {
+                fileChannel.write(ByteBuffer.allocate(1), papayaFile.getFileSize() - 1);
+            }
+        } catch (FileAlreadyExistsException e) {
+            logger.info("File already allocated: " + path);
+        }
+    }
+
+    @Override
+    public PartLocation writeLocation(Path store, PapayaFile papayaFile, int partIndex, long offset, long size) {
+        if (!isSingleFile(papayaFile)) {
+            return splitPartStorage.writeLocation(store, papayaFile, partIndex, offset, size);
+        }
+        return new PartLocation(store.resolve(papayaFile.getFileName()), offset, size);
+    }
+
+    @Override
+    public Optional<PartLocation> locate(Path store, PapayaFile papayaFile, String partFileName, boolean complete) {
+        if (!isSingleFile(papayaFile)) {
+            return splitPartStorage.locate(store, papayaFile, partFileName, complete);
+        }
+        if (!complete) {
+            return Optional.empty();
+        }
+        PartLocation partLocation = range(store, papayaFile, partFileName);
+        try {
+            if (!Files.exists(partLocation.path()) || Files.size(partLocation.path()) < partLocation.position() + partLocation.size()) {
+                return Optional.empty();
+            }
+            return Optional.of(partLocation);
+        } catch (IOException e) {
+            logger.severe(e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void commit(Path store, PapayaFile papayaFile, String partFileName, StagedPart stagedPart) throws IOException {
+        if (!isSingleFile(papayaFile)) {
+            splitPartStorage.commit(store, papayaFile, partFileName, stagedPart);
+            return;
+        }
+        allocate(store, papayaFile);
+        PartLocation partLocation = range(store, papayaFile, partFileName);
+        copy(stagedPart.path(), new PartLocation(partLocation.path(), partLocation.position(), stagedPart.size()));
+        Files.deleteIfExists(stagedPart.path());
+    }
+
+    @Override
+    public void share(Path store, PapayaFile papayaFile, PartFile partFile) {
+        if (!isSingleFile(papayaFile)) {
+            splitPartStorage.share(store, papayaFile, partFile);
+        }
+    }
+
+    @Override
+    public boolean reuse(Path store, PapayaFile papayaFile, PartFile partFile) throws IOException {
+        if (!isSingleFile(papayaFile)) {
+            return splitPartStorage.reuse(store, papayaFile, partFile);
+        }
+        Optional<Path> maybeChunkPath = chunkStore.chunkPath(store.getParent(), partFile);
+        if (maybeChunkPath.isEmpty() || !Files.exists(maybeChunkPath.get())) {
+            return false;
+        }
+        Path chunkPath = maybeChunkPath.get();
+        allocate(store, papayaFile);
+        copy(chunkPath, range(store, papayaFile, partFile.getFileName()));
+        logger.info("Reused chunk: " + chunkPath.getFileName() + " for part: " + partFile.getFileName());
+        return true;
+    }
+
+    @Override
+    public Path join(Path store, PapayaFile papayaFile, Set<String> verifiedParts, boolean resume) throws IOException {
+        if (!isSingleFile(papayaFile)) {
+            return splitPartStorage.join(store, papayaFile, verifiedParts, resume);
+        }
+        Path path = store.resolve(papayaFile.getFileName());
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            fileChannel.truncate(papayaFile.getFileSize());
+            fileChannel.force(true);
+        }
+        return path;
+    }
+
+    private void copy(Path source, PartLocation target) throws IOException {
+        try (FileChannel sourceChannel = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel targetChannel = FileChannel.open(target.path(), StandardOpenOption.WRITE)) {
+            long transferred = 0;
+            while (transferred < target.size()) {
+                long count = targetChannel.transferFrom(sourceChannel.position(transferred), target.position() + transferred, target.size() - transferred);
+                if (count <= 0) {
+                    throw new EOFException("Unexpected end of file: " + source);
+                }
+                transferred += count;
+            }
+        }
+    }
+
+    private PartLocation range(Path store, PapayaFile papayaFile, String partFileName) {
+        Path path = store.resolve(papayaFile.getFileName());
+        Optional<PartFile> maybePartFile = papayaFile.getPartFiles().stream()
+                .filter(partFile -> partFile.getFileName().equals(partFileName))
+                .findFirst();
+        if (maybePartFile.isPresent() && maybePartFile.get().getSize() > 0) {
+            return new PartLocation(path, maybePartFile.get().getOffset(), maybePartFile.get().getSize());
+        }
+        long position = Long.parseLong(partFileName) * papayaFile.getPartSize();
+        return new PartLocation(path, position, Math.min(papayaFile.getPartSize(), papayaFile.getFileSize() - position));
+    }
+
+    private boolean isSingleFile(PapayaFile papayaFile) {
+        if (papayaFile.getFileSize() <= 0) {
+            return false;
+        }
+        return papayaFile.getPartSize() > 0
+                || (!papayaFile.getPartFiles().isEmpty() && papayaFile.getPartFiles().stream().allMatch(partFile -> partFile.getSize() > 0));
+    }
+}
@@ -0,0 +1,152 @@
+package dev.tronxi.papayaclient.persistence.storage;
+
+import dev.tronxi.papayaclient.persistence.PartHashExecutor;
+import dev.tronxi.papayaclient.persistence.chunking.ChunkStore;
+import dev.tronxi.papayaclient.persistence.incoming.StagedPart;
+import dev.tronxi.papayaclient.persistence.papayafile.PapayaFile;
+import dev.tronxi.papayaclient.persistence.papayafile.PartFile;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.logging.Logger;
+
+@Service
+@ConditionalOnProperty(name = "papaya.storage.mode", havingValue = "parts", matchIfMissing = true)
+public class SplitPartStorage implements PartStorage {
+
+    private static final Logger logger = Logger.getLogger(SplitPartStorage.class.getName());
+
+    private static final String JOURNAL_EXTENSION = ".join";
+
+    private final PartHashExecutor partHashExecutor;
+    private final ChunkStore chunkStore;
+
+    public SplitPartStorage(PartHashExecutor partHashExecutor, ChunkStore chunkStore) {
+        this.partHashExecutor = partHashExecutor;
+        this.chunkStore = chunkStore;
+    }
+
+    @Override
+    public void allocate(Path store, PapayaFile papayaFile) {
+    }
+
+    @Override
+    public PartLocation writeLocation(Path store, PapayaFile papayaFile, int partIndex, long offset, long size) {
+        return new PartLocation(store.resolve(String.valueOf(partIndex)), 0, size);
+    }
+
+    @Override
+    public Optional<PartLocation> locate(Path store, PapayaFile papayaFile, String partFileName, boolean complete) {
+        if (!complete) {
+            return Optional.empty();
+        }
+        Path path = store.resolve(partFileName);
+        try {
+            return Files.exists(path) ? Optional.of(new PartLocation(path, 0, Files.size(path))) : Optional.empty();
+        } catch (IOException e) {
+            logger.severe(e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void commit(Path store, PapayaFile papayaFile, String partFileName, StagedPart stagedPart) throws IOException {
+        Files.move(stagedPart.path(), store.resolve(partFileName), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public void share(Path store, PapayaFile papayaFile, PartFile partFile) {
+        chunkStore.share(store.getParent(), store.resolve(partFile.getFileName()), partFile);
+    }
+
+    @Override
+    public boolean reuse(Path store, PapayaFile papayaFile, PartFile partFile) {
+        return chunkStore.reuse(store.getParent(), store.resolve(partFile.getFileName()), partFile);
+    }
+
+    @Override
+    public Path join(Path store, PapayaFile papayaFile, Set<String> verifiedParts, boolean resume) throws IOException {
+        List<PartFile> partFiles = papayaFile.getPartFiles();
+        List<PartFile> unverifiedParts = partFiles.stream()
+                .filter(partFile -> !verifiedParts.contains(partFile.getFileName()))
+                .toList();
+        logger.info("Verifying " + unverifiedParts.size() + " of " + partFiles.size() + " parts before join");
+        List<Optional<String>> partHashes = partHashExecutor.hashParts(unverifiedParts, partFile -> locate(store, papayaFile, partFile.getFileName(), true));
+        for (int i = 0; i < partHashes.size(); i++) {
+            PartFile partFile = unverifiedParts.get(i);
+            if (!partHashes.get(i).map(partFile.getFileHash()::equals).orElse(false)) {
+                throw new IOException("part hash does not match: " + partFile.getFileName());
+            }
+        }
+
+        List<PartLocation> partLocations = new ArrayList<>(partFiles.size());
+        for (PartFile partFile : partFiles) {
+            partLocations.add(locate(store, papayaFile, partFile.getFileName(), true)
+                    .orElseThrow(() -> new FileNotFoundException("Part not found: " + partFile.getFileName())));
+        }
+        long[] offsets = new long[partLocations.size()];
+        long size = 0;
+        for (int i = 0; i < partLocations.size(); i++) {
+            offsets[i] = size;
+            size += partLocations.get(i).size();
+        }
+
+        Path papayaFilePath = store.resolve(papayaFile.getFileName());
+        boolean canResume = resume && Files.exists(papayaFilePath) && Files.size(papayaFilePath) == size;
+        try (JoinJournal joinJournal = JoinJournal.open(store.resolve(papayaFile.getFileName() + JOURNAL_EXTENSION), canResume)) {
+            if (canResume) {
+                logger.info("Resuming join: " + papayaFilePath + " written parts: " + joinJournal.writtenCount());
+            } else {
+                logger.info("Start writing for join: " + papayaFilePath + " size: " + size);
+                try (FileChannel fileChannel = FileChannel.open(papayaFilePath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    if (size > 0) {
+                        fileChannel.write(ByteBuffer.allocate(1), size - 1);
+                    }
+                }
+            }
+            List<Integer> partIndexes = IntStream.range(0, partLocations.size())
+                    .filter(partIndex -> !joinJournal.isWritten(partFiles.get(partIndex).getFileName()))
+                    .boxed()
+                    .toList();
+            partHashExecutor.invokeOrdered(partIndexes, (partIndex, buffer) -> {
+                copyPart(partLocations.get(partIndex), papayaFilePath, offsets[partIndex]);
+                joinJournal.markWritten(partFiles.get(partIndex).getFileName());
+                return partIndex;
+            });
+            joinJournal.delete();
+        }
+        return papayaFilePath;
+    }
+
+    private void copyPart(PartLocation partLocation, Path target, long offset) throws IOException {
+        logger.info("Writing for join:  " + partLocation.path().getFileName());
+        try (FileChannel source = FileChannel.open(partLocation.path(), StandardOpenOption.READ);
+             FileChannel targetChannel = FileChannel.open(target, StandardOpenOption.WRITE)) {
+            targetChannel.position(offset);
+            long position = partLocation.position();
+            long end = position + partLocation.size();
+            while (position < end) {
+                long transferred = source.transferTo(position, end - position, targetChannel);
+                if (transferred <= 0) {
+                    throw new EOFException("Unexpected end of file at " + position + ": " + partLocation.path());
+                }
+                position += transferred;
+            }
+            targetChannel.force(false);
+        }
+    }
+}
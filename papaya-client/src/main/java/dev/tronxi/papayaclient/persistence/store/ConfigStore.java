@@ -0,0 +1,10 @@
+package dev.tronxi.papayaclient.persistence.store;
+
+import java.util.Optional;
+
+public interface ConfigStore {
+
+    Optional<String> find(String name);
+
+    void save(String name, String value);
+}
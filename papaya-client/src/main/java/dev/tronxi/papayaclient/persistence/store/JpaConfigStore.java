@@ -0,0 +1,40 @@
+package dev.tronxi.papayaclient.persistence.store;
+
+import dev.tronxi.papayaclient.persistence.config.Config;
+import dev.tronxi.papayaclient.persistence.repositories.ConfigRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+@Service
+@ConditionalOnProperty(name = "papaya.persistence.store", havingValue = "jpa", matchIfMissing = true)
+public class JpaConfigStore implements ConfigStore {
+
+    private final ConfigRepository configRepository;
+
+    public JpaConfigStore(ConfigRepository configRepository) {
+        this.configRepository = configRepository;
+    }
+
+    @Override
+    public Optional<String> find(String name) {
+        return configRepository.findById(name)
+                .map(Config::getValue);
+    }
+
+    @Override
+    public void save(String name, String value) {
+        Optional<Config> maybeConfig = configRepository.findById(name);
+        Config config;
+        if (maybeConfig.isPresent()) {
+            config = maybeConfig.get();
+            config.setValue(value);
+        } else {
+            config = new Config();
+            config.setName(name);
+            config.setValue(value);
+        }
+        configRepository.save(config);
+    }
+}
@@ -0,0 +1,93 @@
+package dev.tronxi.papayaclient.persistence.store;
+
+import dev.tronxi.papayaclient.persistence.papayastatusfile.JoinStatus;
+import dev.tronxi.papayaclient.persistence.papayastatusfile.PapayaStatus;
+import dev.tronxi.papayaclient.persistence.papayastatusfile.PapayaStatusFile;
+import dev.tronxi.papayaclient.persistence.papayastatusfile.PartStatusFile;
+import dev.tronxi.papayaclient.persistence.repositories.PapayaStatusFileRepository;
+import dev.tronxi.papayaclient.persistence.repositories.PartPeerStatusFileRepository;
+import dev.tronxi.papayaclient.persistence.repositories.PartStatusFileRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+@ConditionalOnProperty(name = "papaya.persistence.store", havingValue = "jpa", matchIfMissing = true)
+public class JpaStatusStore implements StatusStore {
+
+    private final PapayaStatusFileRepository papayaStatusFileRepository;
+    private final PartStatusFileRepository partStatusFileRepository;
+    private final PartPeerStatusFileRepository partPeerStatusFileRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public JpaStatusStore(PapayaStatusFileRepository papayaStatusFileRepository, PartStatusFileRepository partStatusFileRepository, PartPeerStatusFileRepository partPeerStatusFileRepository, PlatformTransactionManager transactionManager) {
+        this.papayaStatusFileRepository = papayaStatusFileRepository;
+        this.partStatusFileRepository = partStatusFileRepository;
+        this.partPeerStatusFileRepository = partPeerStatusFileRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public Optional<PapayaStatusFile> findById(String fileId) {
+        return papayaStatusFileRepository.findById(fileId);
+    }
+
+    @Override
+    public List<PapayaStatusFile> findAll() {
+        return papayaStatusFileRepository.findAll();
+    }
+
+    @Override
+    public List<String> findFileIdsByStatus(PapayaStatus status) {
+        return papayaStatusFileRepository.findFileIdsByStatus(status);
+    }
+
+    @Override
+    public List<String> findFileIdsByStatusAndJoinStatusNot(PapayaStatus status, JoinStatus joinStatus) {
+        return papayaStatusFileRepository.findFileIdsByStatusAndJoinStatusNot(status, joinStatus);
+    }
+
+    @Override
+    public List<String> findFileIdsWithoutStatus() {
+        return papayaStatusFileRepository.findFileIdsWithoutStatus();
+    }
+
+    @Override
+    public void write(List<PapayaStatusFile> statusFiles, List<CompletedParts> completedParts) {
+        transactionTemplate.executeWithoutResult(status -> {
+            statusFiles.forEach(this::write);
+            completedParts.forEach(parts -> {
+                PapayaStatusFile papayaStatusFile = parts.papayaStatusFile();
+                partStatusFileRepository.saveAll(papayaStatusFile.getPartStatusFiles().stream()
+                        .filter(partStatusFile -> parts.partFileNames().contains(partStatusFile.getFileName()))
+                        .toList());
+                papayaStatusFileRepository.updateCompletion(papayaStatusFile.getFileId(), papayaStatusFile.getCompletion(), papayaStatusFile.getCompletedCount(), papayaStatusFile.getStatus());
+            });
+        });
+    }
+
+    @Override
+    public void remove(PapayaStatusFile papayaStatusFile) {
+        papayaStatusFile.getPartStatusFiles().forEach(partStatusFile -> {
+            partStatusFile.setPartPeerStatusFiles(Collections.emptySet());
+            partStatusFileRepository.save(partStatusFile);
+            partPeerStatusFileRepository.deleteAll(partStatusFile.getPartPeerStatusFiles());
+        });
+        List<PartStatusFile> partStatusFilesToRemove = papayaStatusFile.getPartStatusFiles();
+        papayaStatusFile.setPartStatusFiles(Collections.emptyList());
+        papayaStatusFileRepository.save(papayaStatusFile);
+        papayaStatusFileRepository.delete(papayaStatusFile);
+        partStatusFileRepository.deleteAll(partStatusFilesToRemove);
+    }
+
+    private void write(PapayaStatusFile papayaStatusFile) {
+        papayaStatusFile.getPartStatusFiles().forEach(part -> partPeerStatusFileRepository.saveAll(part.getPartPeerStatusFiles()));
+        partStatusFileRepository.saveAll(papayaStatusFile.getPartStatusFiles());
+        papayaStatusFileRepository.save(papayaStatusFile);
+    }
+}
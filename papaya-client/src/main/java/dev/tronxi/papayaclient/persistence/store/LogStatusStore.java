@@ -0,0 +1,262 @@
+package dev.tronxi.papayaclient.persistence.store;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.tronxi.papayaclient.configuration.ApplicationDirectory;
+import dev.tronxi.papayaclient.peer.Peer;
+import dev.tronxi.papayaclient.persistence.papayastatusfile.*;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+@Service
+@ConditionalOnProperty(name = "papaya.persistence.store", havingValue = "log")
+public class LogStatusStore implements StatusStore {
+
+    static final String DEFAULT_DIRECTORY = "data";
+
+    private static final Logger logger = Logger.getLogger(LogStatusStore.class.getName());
+    private static final String SNAPSHOT_FILE = "status.snapshot";
+    private static final String LOG_FILE = "status.log";
+    private static final String PUT = "PUT";
+    private static final String COMPLETE = "COMPLETE";
+    private static final String DELETE = "DELETE";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Path directory;
+    private final int compactThreshold;
+    private final Map<String, StatusRecord> records = new LinkedHashMap<>();
+    private FileChannel logChannel;
+    private int logEntries;
+    private long nextId = 1;
+
+    public LogStatusStore(@Value("${papaya.persistence.directory}") String directory, @Value("${papaya.persistence.compactThreshold}") int compactThreshold) {
+        this.directory = ApplicationDirectory.resolve(directory, DEFAULT_DIRECTORY);
+        this.compactThreshold = compactThreshold;
+    }
+
+    @PostConstruct
+    public synchronized void open() throws IOException {
+        Files.createDirectories(directory);
+        Path snapshotPath = directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshotPath)) {
+            List<StatusRecord> snapshot = objectMapper.readValue(snapshotPath.toFile(), new TypeReference<>() {
+            });
+            snapshot.forEach(statusRecord -> records.put(statusRecord.fileId(), statusRecord));
+        }
+        Path logPath = directory.resolve(LOG_FILE);
+        boolean torn = false;
+        if (Files.exists(logPath)) {
+            try (BufferedReader reader = Files.newBufferedReader(logPath, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    try {
+                        apply(objectMapper.readValue(line, LogEntry.class));
+                        logEntries++;
+                    } catch (JsonProcessingException e) {
+                        logger.warning("Ignoring torn status log entry: " + e.getOriginalMessage());
+                        torn = true;
+                        break;
+                    }
+                }
+            }
+        }
+        nextId = records.values().stream()
+                .flatMap(StatusRecord::ids)
+                .mapToLong(Long::longValue)
+                .max()
+                .orElse(0) + 1;
+        logChannel = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        logger.info("Loaded " + records.size() + " status files, " + logEntries + " log entries");
+        if (torn || logEntries > compactThreshold) {
+            compact();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (logChannel != null && logChannel.isOpen()) {
+            logChannel.close();
+        }
+    }
+
+    @Override
+    public synchronized Optional<PapayaStatusFile> findById(String fileId) {
+        return Optional.ofNullable(records.get(fileId)).map(StatusRecord::toStatusFile);
+    }
+
+    @Override
+    public synchronized List<PapayaStatusFile> findAll() {
+        return records.values().stream()
+                .map(StatusRecord::toStatusFile)
+                .toList();
+    }
+
+    @Override
+    public synchronized List<String> findFileIdsByStatus(PapayaStatus status) {
+        return records.values().stream()
+                .filter(statusRecord -> statusRecord.status() == status)
+                .map(StatusRecord::fileId)
+                .toList();
+    }
+
+    @Override
+    public synchronized List<String> findFileIdsByStatusAndJoinStatusNot(PapayaStatus status, JoinStatus joinStatus) {
+        return records.values().stream()
+                .filter(statusRecord -> statusRecord.status() == status && statusRecord.joinStatus() != joinStatus)
+                .map(StatusRecord::fileId)
+                .toList();
+    }
+
+    @Override
+    public List<String> findFileIdsWithoutStatus() {
+        return List.of();
+    }
+
+    @Override
+    public synchronized void write(List<PapayaStatusFile> statusFiles, List<CompletedParts> completedParts) {
+        List<LogEntry> entries = new ArrayList<>();
+        statusFiles.forEach(papayaStatusFile -> entries.add(new LogEntry(PUT, papayaStatusFile.getFileId(), toRecord(papayaStatusFile), null)));
+        completedParts.forEach(parts -> entries.add(new LogEntry(COMPLETE, parts.papayaStatusFile().getFileId(), null, parts.partFileNames())));
+        append(entries);
+    }
+
+    @Override
+    public synchronized void remove(PapayaStatusFile papayaStatusFile) {
+        append(List.of(new LogEntry(DELETE, papayaStatusFile.getFileId(), null, null)));
+    }
+
+    private void append(List<LogEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        try {
+            StringBuilder lines = new StringBuilder();
+            for (LogEntry entry : entries) {
+                lines.append(objectMapper.writeValueAsString(entry)).append('\n');
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                logChannel.write(buffer);
+            }
+            logChannel.force(false);
+            entries.forEach(this::apply);
+            logEntries += entries.size();
+            if (logEntries > compactThreshold) {
+                compact();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void apply(LogEntry entry) {
+        switch (entry.type()) {
+            case PUT -> records.put(entry.fileId(), entry.statusFile());
+            case COMPLETE -> records.computeIfPresent(entry.fileId(), (fileId, statusRecord) -> statusRecord.complete(entry.parts()));
+            case DELETE -> records.remove(entry.fileId());
+            default -> logger.warning("Unknown status log entry: " + entry.type());
+        }
+    }
+
+    private void compact() throws IOException {
+        Path snapshotPath = directory.resolve(SNAPSHOT_FILE);
+        Path tempPath = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel snapshotChannel = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(objectMapper.writeValueAsBytes(records.values()));
+            while (buffer.hasRemaining()) {
+                snapshotChannel.write(buffer);
+            }
+            snapshotChannel.force(true);
+        }
+        Files.move(tempPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logChannel.truncate(0);
+        logChannel.force(true);
+        logger.info("Compacted status log: " + logEntries + " entries into " + records.size() + " status files");
+        logEntries = 0;
+    }
+
+    private StatusRecord toRecord(PapayaStatusFile papayaStatusFile) {
+        List<PartRecord> parts = papayaStatusFile.getPartStatusFiles().stream()
+                .map(partStatusFile -> {
+                    if (partStatusFile.getId() == null) {
+                        partStatusFile.setId(nextId++);
+                    }
+                    List<PeerRecord> peers = partStatusFile.getPartPeerStatusFiles().stream()
+                            .map(partPeerStatusFile -> {
+                                if (partPeerStatusFile.getId() == null) {
+                                    partPeerStatusFile.setId(nextId++);
+                                }
+                                return new PeerRecord(partPeerStatusFile.getId(), partPeerStatusFile.getPeer(), partPeerStatusFile.getPartPeerStatus(), partPeerStatusFile.getLatestUpdateTime());
+                            })
+                            .toList();
+                    return new PartRecord(partStatusFile.getId(), partStatusFile.getFileName(), partStatusFile.getFileHash(), partStatusFile.getStatus(), peers);
+                })
+                .toList();
+        return new StatusRecord(papayaStatusFile.getFileId(), papayaStatusFile.getFileName(), papayaStatusFile.getJoinStatus(), parts);
+    }
+
+    record LogEntry(String type, String fileId, StatusRecord statusFile, Set<String> parts) {
+    }
+
+    record StatusRecord(String fileId, String fileName, JoinStatus joinStatus, List<PartRecord> parts) {
+
+        PapayaStatus status() {
+            return parts.stream().allMatch(part -> part.status() == PapayaStatus.COMPLETE) ? PapayaStatus.COMPLETE : PapayaStatus.INCOMPLETE;
+        }
+
+        StatusRecord complete(Set<String> partFileNames) {
+            return new StatusRecord(fileId, fileName, joinStatus, parts.stream()
+                    .map(part -> partFileNames.contains(part.fileName()) ? part.complete() : part)
+                    .toList());
+        }
+
+        Stream<Long> ids() {
+            return parts.stream().flatMap(part -> Stream.concat(Stream.of(part.id()), part.peers().stream().map(PeerRecord::id)));
+        }
+
+        PapayaStatusFile toStatusFile() {
+            List<PartStatusFile> partStatusFiles = new ArrayList<>();
+            parts.forEach(part -> {
+                PartStatusFile partStatusFile = new PartStatusFile(part.fileName(), part.fileHash(), part.status());
+                partStatusFile.setId(part.id());
+                part.peers().forEach(peer -> {
+                    PartPeerStatusFile partPeerStatusFile = new PartPeerStatusFile(peer.peer(), peer.partPeerStatus(), peer.latestUpdateTime());
+                    partPeerStatusFile.setId(peer.id());
+                    partStatusFile.addPeer(partPeerStatusFile);
+                });
+                partStatusFiles.add(partStatusFile);
+            });
+            return new PapayaStatusFile(fileName, fileId)
+                    .setJoinStatus(joinStatus)
+                    .setPartStatusFiles(partStatusFiles);
+        }
+    }
+
+    record PartRecord(Long id, String fileName, String fileHash, PapayaStatus status, List<PeerRecord> peers) {
+
+        PartRecord complete() {
+            return new PartRecord(id, fileName, fileHash, PapayaStatus.COMPLETE, peers);
+        }
+    }
+
+    record PeerRecord(Long id, Peer peer, PartPeerStatus partPeerStatus, long latestUpdateTime) {
+    }
+}
@@ -0,0 +1,55 @@
+package dev.tronxi.papayaclient.persistence.store;
+
+import dev.tronxi.papayaclient.configuration.ApplicationDirectory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.Properties;
+
+@Service
+@ConditionalOnProperty(name = "papaya.persistence.store", havingValue = "log")
+public class PropertiesConfigStore implements ConfigStore {
+
+    private static final String CONFIG_FILE = "config.properties";
+
+    private final Path path;
+    private final Properties properties = new Properties();
+
+    public PropertiesConfigStore(@Value("${papaya.persistence.directory}") String directory) throws IOException {
+        this.path = ApplicationDirectory.resolve(directory, LogStatusStore.DEFAULT_DIRECTORY).resolve(CONFIG_FILE);
+        if (Files.exists(path)) {
+            try (Reader reader = Files.newBufferedReader(path)) {
+                properties.load(reader);
+            }
+        }
+    }
+
+    @Override
+    public synchronized Optional<String> find(String name) {
+        return Optional.ofNullable(properties.getProperty(name));
+    }
+
+    @Override
+    public synchronized void save(String name, String value) {
+        properties.setProperty(name, value);
+        try {
+            Files.createDirectories(path.getParent());
+            Path tempPath = path.resolveSibling(CONFIG_FILE + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(tempPath)) {
+                properties.store(writer, null);
+            }
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package dev.tronxi.papayaclient.persistence.store;
+
+import dev.tronxi.papayaclient.persistence.papayastatusfile.JoinStatus;
+import dev.tronxi.papayaclient.persistence.papayastatusfile.PapayaStatus;
+import dev.tronxi.papayaclient.persistence.papayastatusfile.PapayaStatusFile;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+public interface StatusStore {
+
+    Optional<PapayaStatusFile> findById(String fileId);
+
+    List<PapayaStatusFile> findAll();
+
+    List<String> findFileIdsByStatus(PapayaStatus status);
+
+    List<String> findFileIdsByStatusAndJoinStatusNot(PapayaStatus status, JoinStatus joinStatus);
+
+    List<String> findFileIdsWithoutStatus();
+
+    void write(List<PapayaStatusFile> statusFiles, List<CompletedParts> completedParts);
+
+    void remove(PapayaStatusFile papayaStatusFile);
+
+    record CompletedParts(PapayaStatusFile papayaStatusFile, Set<String> partFileNames) {
+    }
+}
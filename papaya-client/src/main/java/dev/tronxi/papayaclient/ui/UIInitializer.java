@@ -6,7 +6,6 @@ import dev.tronxi.papayaclient.PapayaClientApplication;
 import dev.tronxi.papayaclient.persistence.FileManager;
 import dev.tronxi.papayaclient.persistence.papayafile.PapayaFile;
 import dev.tronxi.papayaclient.peer.PeerConnectionManager;
-import dev.tronxi.papayaclient.peer.PeerConnectionManagerTCP;
 import dev.tronxi.papayaclient.persistence.services.ConfigService;
 import dev.tronxi.papayaclient.ui.components.*;
 import javafx.application.Application;
@@ -37,7 +36,7 @@ public class UIInitializer extends Application {
     @Override
     public void init() {
         fileManager = PapayaClientApplication.getContext().getBean(FileManager.class);
-        peerConnectionManager = PapayaClientApplication.getContext().getBean(PeerConnectionManagerTCP.class);
+        peerConnectionManager = PapayaClientApplication.getContext().getBean(PeerConnectionManager.class);
         configService = PapayaClientApplication.getContext().getBean(ConfigService.class);
         gatewayDevice = PapayaClientApplication.getContext().getBean(GatewayDevice.class);
     }
@@ -119,10 +119,7 @@ public class PapayaProgress {
     }
 
     private double calculateProgress(PapayaStatusFile papayaStatusFile) {
-        long completeCount = papayaStatusFile.getPartStatusFiles().stream()
-                .filter(part -> part.getStatus() == PapayaStatus.COMPLETE)
-                .count();
-        return (double) completeCount / papayaStatusFile.getPartStatusFiles().size();
+        return papayaStatusFile.getProgress();
     }
 
     private String calculatePercent(double progress) {
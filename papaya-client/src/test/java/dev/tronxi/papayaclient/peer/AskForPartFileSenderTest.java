@@ -0,0 +1,64 @@
+package dev.tronxi.papayaclient.peer;
+
+import dev.tronxi.papayaclient.peer.connection.PeerConnectionPool;
+import dev.tronxi.papayaclient.peer.download.PeerRequestWindows;
+import dev.tronxi.papayaclient.peer.download.RarestFirstPieceSelectionStrategy;
+import dev.tronxi.papayaclient.peer.download.SwarmState;
+import dev.tronxi.papayaclient.peer.protocol.PeerMessageCodec;
+import dev.tronxi.papayaclient.persistence.FileManager;
+import dev.tronxi.papayaclient.persistence.papayastatusfile.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class AskForPartFileSenderTest {
+
+    private static final String FILE_ID = "0123456789abcdef0123456789abcdef";
+
+    @Test
+    public void availabilitySurvivesTimeoutAndEviction() throws IOException, InterruptedException {
+        SwarmState swarmState = new SwarmState();
+        PeerConnectionPool peerConnectionPool = new PeerConnectionPool();
+        ReflectionTestUtils.setField(peerConnectionPool, "idleTimeout", 0L);
+        PeerRequestWindows peerRequestWindows = new PeerRequestWindows(2, 16, 5000, 10, 10, 60000, 1);
+        AskForPartFileSender askForPartFileSender = new AskForPartFileSender(peerConnectionPool, new PeerMessageCodec(), peerRequestWindows,
+                mock(FileManager.class), new RarestFirstPieceSelectionStrategy(swarmState), swarmState);
+
+        try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress("127.0.0.1", 0))) {
+            Peer peer = new Peer("127.0.0.1", server.socket().getLocalPort());
+            swarmState.onPeerParts(FILE_ID, peer, List.of(0));
+
+            askForPartFileSender.send(statusFile(peer));
+            try (SocketChannel ignored = server.accept()) {
+                assertTrue(peerRequestWindows.isRequested(peer, FILE_ID, 0));
+
+                Thread.sleep(50);
+                askForPartFileSender.expireRequests();
+
+                assertFalse(peerRequestWindows.isRequested(peer, FILE_ID, 0));
+                assertEquals(1, swarmState.getAvailability(FILE_ID, 0));
+
+                peerConnectionPool.evictIdleConnections();
+
+                assertEquals(1, swarmState.getAvailability(FILE_ID, 0));
+            } finally {
+                peerConnectionPool.closeAll();
+            }
+        }
+    }
+
+    private PapayaStatusFile statusFile(Peer peer) {
+        PartStatusFile partStatusFile = new PartStatusFile("0", "hash", PapayaStatus.INCOMPLETE);
+        partStatusFile.setId(1L);
+        partStatusFile.addPeer(new PartPeerStatusFile(peer, PartPeerStatus.NO_ASKED, System.currentTimeMillis()));
+        return new PapayaStatusFile("file", FILE_ID).setPartStatusFiles(List.of(partStatusFile));
+    }
+}
@@ -0,0 +1,100 @@
+package dev.tronxi.papayaclient.peer.connection;
+
+import dev.tronxi.papayaclient.peer.PeerMessageType;
+import dev.tronxi.papayaclient.peer.protocol.PeerMessage;
+import dev.tronxi.papayaclient.peer.protocol.PeerMessageCodec;
+import dev.tronxi.papayaclient.peer.services.TransferLimiter;
+import dev.tronxi.papayaclient.persistence.FileManager;
+import dev.tronxi.papayaclient.persistence.HashGenerator;
+import dev.tronxi.papayaclient.persistence.hash.HashAlgorithm;
+import dev.tronxi.papayaclient.persistence.incoming.IncomingPart;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NioInboundConnectionTest {
+
+    private static final String FILE_ID = "0123456789abcdef0123456789abcdef";
+
+    private final PeerMessageCodec peerMessageCodec = new PeerMessageCodec();
+    private final HashGenerator hashGenerator = new HashGenerator(HashAlgorithm.SHA256);
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    public void receivesControlMessageAndPartOverSelector() throws Exception {
+        FileManager fileManager = mock(FileManager.class);
+        when(fileManager.createIncomingPart(any(), any()))
+                .thenAnswer(invocation -> new IncomingPart(tempDir, invocation.getArgument(1), hashGenerator, HashAlgorithm.SHA256));
+        byte[] content = new byte[200 * 1024];
+        new Random(42).nextBytes(content);
+        ExecutorService writeExecutor = Executors.newSingleThreadExecutor();
+
+        try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress("127.0.0.1", 0));
+             SocketChannel client = SocketChannel.open(server.getLocalAddress());
+             SocketChannel accepted = server.accept();
+             Selector selector = Selector.open()) {
+            accepted.configureBlocking(false);
+            NioInboundConnection connection = new NioInboundConnection(accepted, peerMessageCodec, fileManager, new TransferLimiter(8, 8), writeExecutor);
+            accepted.register(selector, SelectionKey.OP_READ, connection);
+
+            Future<?> sender = Executors.newVirtualThreadPerTaskExecutor().submit(() -> {
+                write(client, peerMessageCodec.encode(PeerMessageType.RESPONSE_ASK_FOR_RESOURCES, FILE_ID, 0, 0, peerMessageCodec.encodePartIndexes(List.of(0, 2, 5))));
+                write(client, peerMessageCodec.encodeHeader(PeerMessageType.PART_FILE, FILE_ID, 3, 0, content.length));
+                write(client, ByteBuffer.wrap(content));
+                return null;
+            });
+
+            List<PeerMessage> messages = new ArrayList<>();
+            while (messages.size() < 2) {
+                assertTrue(selector.select(5000) > 0 || connection.getPendingWrite().isPresent(), "selector stalled");
+                selector.selectedKeys().clear();
+                messages.addAll(connection.onReadable());
+                while (connection.getPendingWrite().isPresent()) {
+                    connection.getPendingWrite().get().get();
+                    messages.addAll(connection.process());
+                }
+            }
+
+            sender.get();
+            assertEquals(PeerMessageType.RESPONSE_ASK_FOR_RESOURCES, messages.get(0).type());
+            assertEquals(List.of(0, 2, 5), peerMessageCodec.decodePartIndexes(messages.get(0).payload()));
+            PeerMessage part = messages.get(1);
+            assertEquals(PeerMessageType.PART_FILE, part.type());
+            assertEquals(3, part.partIndex());
+            assertEquals(content.length, part.stagedPart().size());
+            assertEquals(hashGenerator.generateHash(HashAlgorithm.SHA256, content), part.stagedPart().hash());
+            assertArrayEquals(content, Files.readAllBytes(part.stagedPart().path()));
+            connection.close();
+        } finally {
+            writeExecutor.shutdownNow();
+        }
+    }
+
+    private void write(SocketChannel socketChannel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            socketChannel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package dev.tronxi.papayaclient.peer.connection;
+
+import dev.tronxi.papayaclient.peer.Peer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PeerConnectionTest {
+
+    @Test
+    public void gatheringWriteSendsHeaderAndContent() throws IOException {
+        try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress("127.0.0.1", 0))) {
+            PeerConnection connection = PeerConnection.open(new Peer("127.0.0.1", server.socket().getLocalPort()));
+            try (SocketChannel accepted = server.accept()) {
+                connection.send(ascii("header"), ascii("content"));
+
+                assertEquals("headercontent", read(accepted, 13));
+            } finally {
+                connection.close();
+            }
+        }
+    }
+
+    @Test
+    public void gatheringWriteSendsHeaderWithEmptyContent() throws IOException {
+        try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress("127.0.0.1", 0))) {
+            PeerConnection connection = PeerConnection.open(new Peer("127.0.0.1", server.socket().getLocalPort()));
+            try (SocketChannel accepted = server.accept()) {
+                connection.send(ascii("header"), ByteBuffer.allocate(0));
+                connection.send(ascii("next"));
+
+                assertEquals("headernext", read(accepted, 10));
+            } finally {
+                connection.close();
+            }
+        }
+    }
+
+    private ByteBuffer ascii(String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private String read(SocketChannel socketChannel, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (socketChannel.read(buffer) == -1) {
+                break;
+            }
+        }
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,85 @@
+package dev.tronxi.papayaclient.peer.download;
+
+import dev.tronxi.papayaclient.peer.Peer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PeerRequestWindowsTest {
+
+    private static final String FILE_ID = "file";
+
+    private final Peer peer = new Peer("127.0.0.1", 3390);
+
+    @Test
+    public void windowGrowsOnFastDelivery() {
+        PeerRequestWindows peerRequestWindows = windows(10000);
+
+        assertTrue(peerRequestWindows.tryRequest(request(0)));
+        assertTrue(peerRequestWindows.tryRequest(request(1)));
+        assertFalse(peerRequestWindows.tryRequest(request(2)));
+        assertTrue(peerRequestWindows.onDelivered(peer, FILE_ID, 0).isPresent());
+
+        assertEquals(3, peerRequestWindows.getWindow(peer));
+        assertTrue(peerRequestWindows.tryRequest(request(2)));
+        assertTrue(peerRequestWindows.tryRequest(request(3)));
+        assertFalse(peerRequestWindows.tryRequest(request(4)));
+    }
+
+    @Test
+    public void windowShrinksOnFailure() {
+        PeerRequestWindows peerRequestWindows = windows(10000);
+        peerRequestWindows.tryRequest(request(0));
+        peerRequestWindows.onDelivered(peer, FILE_ID, 0);
+        peerRequestWindows.tryRequest(request(1));
+        peerRequestWindows.onDelivered(peer, FILE_ID, 1);
+        assertEquals(4, peerRequestWindows.getWindow(peer));
+
+        assertTrue(peerRequestWindows.tryRequest(request(2)));
+        assertTrue(peerRequestWindows.onFailed(peer, FILE_ID, 2).isPresent());
+
+        assertEquals(2, peerRequestWindows.getWindow(peer));
+        assertEquals(1, peerRequestWindows.getPenalty(peer));
+        assertEquals(Optional.empty(), peerRequestWindows.onFailed(peer, FILE_ID, 2));
+    }
+
+    @Test
+    public void unansweredRequestsExpire() throws InterruptedException {
+        PeerRequestWindows peerRequestWindows = windows(10);
+        PartRequest partRequest = request(0);
+        assertTrue(peerRequestWindows.tryRequest(partRequest));
+
+        Thread.sleep(50);
+
+        assertEquals(List.of(partRequest), peerRequestWindows.expireRequests());
+        assertFalse(peerRequestWindows.isRequested(peer, FILE_ID, 0));
+        assertEquals(1, peerRequestWindows.getWindow(peer));
+        assertEquals(List.of(), peerRequestWindows.expireRequests());
+    }
+
+    @Test
+    public void cancelledRequestReleasesWindowWithoutPenalty() {
+        PeerRequestWindows peerRequestWindows = windows(10000);
+        PartRequest partRequest = request(0);
+        assertTrue(peerRequestWindows.tryRequest(partRequest));
+        assertFalse(peerRequestWindows.tryRequest(request(0)));
+
+        peerRequestWindows.cancelRequest(partRequest);
+
+        assertFalse(peerRequestWindows.isRequested(peer, FILE_ID, 0));
+        assertEquals(0, peerRequestWindows.getPenalty(peer));
+        assertTrue(peerRequestWindows.tryRequest(request(1)));
+        assertTrue(peerRequestWindows.tryRequest(request(2)));
+    }
+
+    private PeerRequestWindows windows(long requestTimeout) {
+        return new PeerRequestWindows(2, 16, 5000, requestTimeout, requestTimeout, 60000, 1);
+    }
+
+    private PartRequest request(int partIndex) {
+        return new PartRequest(FILE_ID, partIndex, (long) partIndex, peer, System.currentTimeMillis());
+    }
+}
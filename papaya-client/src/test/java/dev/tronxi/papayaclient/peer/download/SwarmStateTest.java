@@ -0,0 +1,95 @@
+package dev.tronxi.papayaclient.peer.download;
+
+import dev.tronxi.papayaclient.peer.Peer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SwarmStateTest {
+
+    private final SwarmState swarmState = new SwarmState();
+
+    @Test
+    public void countsPeersFromLatestAnnouncement() {
+        Peer first = new Peer("10.0.0.1", 3390);
+        Peer second = new Peer("10.0.0.2", 3390);
+        swarmState.onPeerParts("file", first, List.of(0, 1));
+        swarmState.onPeerParts("file", first, List.of(1));
+        swarmState.onPeerParts("file", second, List.of(1));
+
+        assertEquals(0, swarmState.getAvailability("file", 0));
+        assertEquals(2, swarmState.getAvailability("file", 1));
+        assertEquals(0, swarmState.getAvailability("file", 2));
+        assertEquals(0, swarmState.getAvailability("other", 0));
+    }
+
+    @Test
+    public void departedPeersAreNotCounted() {
+        Peer first = new Peer("10.0.0.1", 3390);
+        Peer second = new Peer("10.0.0.2", 3390);
+        swarmState.onPeerParts("file", first, List.of(0, 1));
+        swarmState.onPeerParts("file", second, List.of(1));
+
+        swarmState.removePeer(first);
+
+        assertEquals(0, swarmState.getAvailability("file", 0));
+        assertEquals(1, swarmState.getAvailability("file", 1));
+    }
+
+    @Test
+    public void onlyOneConcurrentAskWins() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> asks = IntStream.range(0, 64)
+                    .mapToObj(i -> executor.submit(() -> swarmState.tryMarkAsked("file", 7L)))
+                    .toList();
+            int won = 0;
+            for (Future<Boolean> ask : asks) {
+                won += ask.get() ? 1 : 0;
+            }
+            assertEquals(1, won);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void onlyOneConcurrentClaimWins() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> claims = IntStream.range(0, 64)
+                    .mapToObj(i -> executor.submit(() -> swarmState.claim("file", "3")))
+                    .toList();
+            int won = 0;
+            for (Future<Boolean> claim : claims) {
+                won += claim.get() ? 1 : 0;
+            }
+            assertEquals(1, won);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void removeFileForgetsFileState() {
+        Peer peer = new Peer("10.0.0.1", 3390);
+        swarmState.onPeerParts("file", peer, List.of(0));
+        swarmState.claim("file", "0");
+        swarmState.tryMarkAsked("file", 0L);
+        assertTrue(swarmState.startJoin("file"));
+        assertFalse(swarmState.startJoin("file"));
+
+        swarmState.removeFile("file");
+
+        assertEquals(0, swarmState.getAvailability("file", 0));
+        assertTrue(swarmState.claim("file", "0"));
+        assertFalse(swarmState.isJoined("file"));
+        assertFalse(swarmState.isAsked(0L));
+    }
+}
@@ -0,0 +1,31 @@
+package dev.tronxi.papayaclient.peer.download;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TimerWheelTest {
+
+    @Test
+    public void expiresEntriesOnlyAfterTheirDelay() {
+        TimerWheel<String> timerWheel = new TimerWheel<>(10, 8, 0);
+        timerWheel.schedule("fast", 25);
+        timerWheel.schedule("slow", 200);
+
+        assertEquals(List.of(), timerWheel.advance(20));
+        assertEquals(List.of("fast"), timerWheel.advance(30));
+        assertEquals(List.of(), timerWheel.advance(190));
+        assertEquals(List.of("slow"), timerWheel.advance(200));
+    }
+
+    @Test
+    public void rttEstimatorAdaptsAndBacksOff() {
+        RttEstimator rttEstimator = new RttEstimator(10000, 100, 60000);
+        rttEstimator.onSample(1000);
+        assertEquals(3000, rttEstimator.getTimeout());
+        rttEstimator.onTimeout();
+        assertEquals(6000, rttEstimator.getTimeout());
+    }
+}
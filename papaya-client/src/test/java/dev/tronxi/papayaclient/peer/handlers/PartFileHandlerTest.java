@@ -0,0 +1,72 @@
+package dev.tronxi.papayaclient.peer.handlers;
+
+import dev.tronxi.papayaclient.peer.AskForPartFileSender;
+import dev.tronxi.papayaclient.peer.Peer;
+import dev.tronxi.papayaclient.peer.PeerMessageType;
+import dev.tronxi.papayaclient.peer.download.PartRepairService;
+import dev.tronxi.papayaclient.peer.download.SwarmState;
+import dev.tronxi.papayaclient.peer.protocol.PeerMessage;
+import dev.tronxi.papayaclient.persistence.FileManager;
+import dev.tronxi.papayaclient.persistence.incoming.StagedPart;
+import dev.tronxi.papayaclient.persistence.papayastatusfile.PapayaStatus;
+import dev.tronxi.papayaclient.persistence.papayastatusfile.PapayaStatusFile;
+import dev.tronxi.papayaclient.persistence.papayastatusfile.PartStatusFile;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class PartFileHandlerTest {
+
+    private static final String FILE_ID = "0123456789abcdef0123456789abcdef";
+
+    private final FileManager fileManager = mock(FileManager.class);
+    private final SwarmState swarmState = new SwarmState();
+    private final PartFileHandler partFileHandler = new PartFileHandler(fileManager, mock(AskForPartFileSender.class), mock(PartRepairService.class), swarmState);
+
+    @Test
+    public void failedJoinCanBeRetried() {
+        when(fileManager.retrievePapayaStatusFileFromFile(FILE_ID)).thenReturn(Optional.of(statusFile()));
+        when(fileManager.commitPart(eq(FILE_ID), eq("0"), any())).thenReturn(true);
+
+        partFileHandler.handle(partMessage());
+
+        verify(fileManager).joinStore(any());
+        assertFalse(swarmState.isJoined(FILE_ID));
+        assertTrue(swarmState.startJoin(FILE_ID));
+    }
+
+    @Test
+    public void regeneratedIncompletePartsReleaseClaims() {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Function<PapayaStatusFile, Void>> generatedFunction = ArgumentCaptor.forClass(Function.class);
+        verify(fileManager).addGeneratedPapayaStatusFileFunction(generatedFunction.capture());
+        assertTrue(swarmState.claim(FILE_ID, "0"));
+        assertTrue(swarmState.startJoin(FILE_ID));
+
+        generatedFunction.getValue().apply(statusFile());
+
+        assertTrue(swarmState.claim(FILE_ID, "0"));
+        assertFalse(swarmState.isJoined(FILE_ID));
+    }
+
+    private PapayaStatusFile statusFile() {
+        PartStatusFile partStatusFile = new PartStatusFile("0", "hash", PapayaStatus.INCOMPLETE);
+        partStatusFile.setId(1L);
+        return new PapayaStatusFile("file", FILE_ID).setPartStatusFiles(List.of(partStatusFile));
+    }
+
+    private PeerMessage partMessage() {
+        StagedPart stagedPart = new StagedPart(Path.of("0.tmp"), 4, "hash");
+        return new PeerMessage(PeerMessageType.PART_FILE, FILE_ID, 0, new Peer("127.0.0.1", 3390), ByteBuffer.allocate(0), stagedPart);
+    }
+}
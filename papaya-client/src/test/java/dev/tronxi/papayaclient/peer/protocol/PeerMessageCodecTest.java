@@ -0,0 +1,111 @@
+package dev.tronxi.papayaclient.peer.protocol;
+
+import dev.tronxi.papayaclient.peer.PeerMessageType;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PeerMessageCodecTest {
+
+    private static final String FILE_ID = "0123456789abcdef0123456789abcdef";
+
+    private final PeerMessageCodec peerMessageCodec = new PeerMessageCodec();
+
+    @Test
+    public void encodeAndReadHeader() throws IOException {
+        ByteBuffer payload = ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5});
+        ByteBuffer frame = peerMessageCodec.encode(PeerMessageType.PART_FILE, FILE_ID, 300, 3390, payload);
+        DataInputStream inputStream = new DataInputStream(new ByteArrayInputStream(frame.array(), 0, frame.limit()));
+
+        PeerMessageHeader header = peerMessageCodec.readHeader(inputStream);
+
+        assertEquals(PeerMessageType.PART_FILE, header.type());
+        assertEquals(FILE_ID, header.fileId());
+        assertEquals(300, header.partIndex());
+        assertEquals(3390, header.port());
+        assertEquals(5, header.payloadLength());
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5}, inputStream.readAllBytes());
+    }
+
+    @Test
+    public void readHeader_UnsupportedVersion() {
+        ByteBuffer frame = peerMessageCodec.encode(PeerMessageType.ASK_FOR_RESOURCES, FILE_ID, 0, 3390);
+        frame.put(0, (byte) 99);
+        DataInputStream inputStream = new DataInputStream(new ByteArrayInputStream(frame.array(), 0, frame.limit()));
+
+        assertThrows(IOException.class, () -> peerMessageCodec.readHeader(inputStream));
+    }
+
+    @Test
+    public void encodeAndDecodePartIndexes() throws IOException {
+        List<Integer> partIndexes = List.of(0, 1, 127, 128, 16384, Integer.MAX_VALUE);
+        ByteBuffer payload = peerMessageCodec.encodePartIndexes(partIndexes);
+        assertEquals(partIndexes, peerMessageCodec.decodePartIndexes(payload));
+    }
+
+    @Test
+    public void encode_InvalidFileId() {
+        assertThrows(IllegalArgumentException.class, () -> peerMessageCodec.encode(PeerMessageType.ASK_FOR_RESOURCES, "short", 0, 3390));
+    }
+
+    @Test
+    public void readHeader_ControlPayloadTooLarge() {
+        ByteBuffer header = peerMessageCodec.encodeHeader(PeerMessageType.PART_FILE, FILE_ID, 0, 3390, PeerMessageCodec.MAX_CONTROL_PAYLOAD_LENGTH + 1);
+        header.put(1, (byte) PeerMessageType.RESPONSE_ASK_FOR_RESOURCES.getValue());
+        DataInputStream inputStream = new DataInputStream(new ByteArrayInputStream(header.array(), 0, header.limit()));
+
+        assertThrows(IOException.class, () -> peerMessageCodec.readHeader(inputStream));
+    }
+
+    @Test
+    public void decodeHeader_PayloadOnRequestWithoutPayload() {
+        ByteBuffer header = peerMessageCodec.encodeHeader(PeerMessageType.BLOCKS, FILE_ID, 0, 3390, 1);
+        header.put(1, (byte) PeerMessageType.CANCEL.getValue());
+
+        assertThrows(IOException.class, () -> peerMessageCodec.decodeHeader(header));
+        assertThrows(IllegalArgumentException.class, () -> peerMessageCodec.encodeHeader(PeerMessageType.ASK_FOR_PART_FILE, FILE_ID, 0, 3390, 1));
+    }
+
+    @Test
+    public void readHeader_NegativeVarInts() {
+        byte[] negativePartIndex = frame(new byte[]{(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x08}, new byte[]{1});
+        byte[] negativePayloadLength = frame(new byte[]{0}, new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F});
+
+        for (byte[] frame : List.of(negativePartIndex, negativePayloadLength)) {
+            assertThrows(IOException.class, () -> peerMessageCodec.readHeader(new DataInputStream(new ByteArrayInputStream(frame))));
+            assertThrows(IOException.class, () -> peerMessageCodec.decodeHeader(ByteBuffer.wrap(frame)));
+        }
+    }
+
+    @Test
+    public void readHeader_OverlongVarInts() {
+        byte[] overflowingPayloadLength = frame(new byte[]{0}, new byte[]{(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x10});
+        byte[] unterminatedPayloadLength = frame(new byte[]{0}, new byte[]{(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x01});
+
+        for (byte[] frame : List.of(overflowingPayloadLength, unterminatedPayloadLength)) {
+            assertThrows(IOException.class, () -> peerMessageCodec.readHeader(new DataInputStream(new ByteArrayInputStream(frame))));
+            assertThrows(IOException.class, () -> peerMessageCodec.decodeHeader(ByteBuffer.wrap(frame)));
+        }
+        assertThrows(IOException.class, () -> peerMessageCodec.decodePartIndexes(ByteBuffer.wrap(new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF})));
+        assertThrows(IOException.class, () -> peerMessageCodec.decodePartIndexes(ByteBuffer.wrap(new byte[]{(byte) 0x80})));
+    }
+
+    private byte[] frame(byte[] partIndex, byte[] payloadLength) {
+        ByteBuffer frame = ByteBuffer.allocate(PeerMessageCodec.MAX_HEADER_LENGTH + 16);
+        frame.put((byte) PeerMessageCodec.VERSION);
+        frame.put((byte) PeerMessageType.PART_FILE.getValue());
+        frame.put(FILE_ID.getBytes(StandardCharsets.US_ASCII));
+        frame.put(partIndex);
+        frame.putShort((short) 3390);
+        frame.put(payloadLength);
+        return Arrays.copyOf(frame.array(), frame.position());
+    }
+}
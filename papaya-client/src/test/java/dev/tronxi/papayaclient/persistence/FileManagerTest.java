@@ -0,0 +1,118 @@
+package dev.tronxi.papayaclient.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.tronxi.papayaclient.persistence.chunking.ChunkStore;
+import dev.tronxi.papayaclient.persistence.chunking.ChunkingStrategy;
+import dev.tronxi.papayaclient.persistence.fingerprint.FingerprintCache;
+import dev.tronxi.papayaclient.persistence.hash.HashAlgorithm;
+import dev.tronxi.papayaclient.persistence.papayafile.PapayaFile;
+import dev.tronxi.papayaclient.persistence.papayafile.PartFile;
+import dev.tronxi.papayaclient.persistence.papayastatusfile.PapayaStatus;
+import dev.tronxi.papayaclient.persistence.papayastatusfile.PapayaStatusFile;
+import dev.tronxi.papayaclient.persistence.papayastatusfile.PartStatusFile;
+import dev.tronxi.papayaclient.persistence.services.ConfigService;
+import dev.tronxi.papayaclient.persistence.services.PapayaStatusFileService;
+import dev.tronxi.papayaclient.persistence.storage.MappedPartCache;
+import dev.tronxi.papayaclient.persistence.storage.PartLocation;
+import dev.tronxi.papayaclient.persistence.storage.PartStorage;
+import dev.tronxi.papayaclient.persistence.storage.SingleFilePartStorage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class FileManagerTest {
+
+    private static final String FILE_ID = "0123456789abcdef0123456789abcdef";
+
+    @TempDir
+    private Path workspace;
+
+    @Test
+    public void freshStoreOnlyVerifiesReusedParts() throws IOException {
+        ConfigService configService = mock(ConfigService.class);
+        when(configService.retrieveWorkspace()).thenReturn(Optional.of(workspace.toString()));
+        PartStorage partStorage = mock(PartStorage.class);
+        when(partStorage.reuse(any(), any(), argThat(partFile -> partFile.getFileName().equals("1")))).thenReturn(true);
+        FingerprintCache fingerprintCache = mock(FingerprintCache.class);
+        when(fingerprintCache.hashParts(any(), any(), any(), anyBoolean())).thenAnswer(invocation -> {
+            PapayaFile papayaFile = invocation.getArgument(1);
+            Function<PartFile, Optional<PartLocation>> locator = invocation.getArgument(2);
+            return papayaFile.getPartFiles().stream()
+                    .map(partFile -> locator.apply(partFile).map(partLocation -> partFile.getFileHash()))
+                    .toList();
+        });
+        when(partStorage.locate(any(), any(), any(), eq(true))).thenAnswer(invocation -> Optional.of(new PartLocation(workspace, 0, 1)));
+        PapayaStatusFileService papayaStatusFileService = mock(PapayaStatusFileService.class);
+        FileManager fileManager = new FileManager(configService, mock(ChunkingStrategy.class), mock(ChunkStore.class), mock(PartSplitter.class), mock(PartHashExecutor.class),
+                mock(BlockHashStore.class), partStorage, mock(MappedPartCache.class), fingerprintCache, mock(HashGenerator.class), papayaStatusFileService);
+        fileManager.init();
+
+        fileManager.createStoreFromPapayaFile(papayaFile());
+
+        verify(partStorage).locate(any(), any(), eq("0"), eq(false));
+        verify(partStorage).locate(any(), any(), eq("1"), eq(true));
+        verify(partStorage).locate(any(), any(), eq("2"), eq(false));
+        ArgumentCaptor<PapayaStatusFile> statusFile = ArgumentCaptor.forClass(PapayaStatusFile.class);
+        verify(papayaStatusFileService).save(statusFile.capture());
+        assertEquals(List.of("1"), statusFile.getValue().getCompletedParts());
+    }
+
+    @Test
+    public void singleFileFingerprintsAreRecordedAfterJoin() throws IOException {
+        ConfigService configService = mock(ConfigService.class);
+        when(configService.retrieveWorkspace()).thenReturn(Optional.of(workspace.toString()));
+        HashGenerator hashGenerator = new HashGenerator(HashAlgorithm.SHA256);
+        PartHashExecutor partHashExecutor = new PartHashExecutor(hashGenerator, Executors.newSingleThreadExecutor(), new MappedPartCache(false, 0));
+        PapayaStatusFileService papayaStatusFileService = mock(PapayaStatusFileService.class);
+        FileManager fileManager = new FileManager(configService, mock(ChunkingStrategy.class), new ChunkStore(), mock(PartSplitter.class), partHashExecutor,
+                mock(BlockHashStore.class), new SingleFilePartStorage(partHashExecutor, new ChunkStore()), mock(MappedPartCache.class),
+                new FingerprintCache(partHashExecutor), hashGenerator, papayaStatusFileService);
+        fileManager.init();
+        byte[] content = new byte[3000];
+        new Random(7).nextBytes(content);
+        PapayaFile papayaFile = new PapayaFile("file.bin", HashAlgorithm.SHA256).setFileId(FILE_ID).setFileSize(content.length).setPartSize(1000);
+        PapayaStatusFile papayaStatusFile = new PapayaStatusFile("file.bin", FILE_ID);
+        for (int i = 0; i < 3; i++) {
+            byte[] part = Arrays.copyOfRange(content, i * 1000, (i + 1) * 1000);
+            papayaFile.addPartFile(new PartFile(String.valueOf(i), hashGenerator.generateHash(HashAlgorithm.SHA256, part), HashAlgorithm.SHA256).setOffset(i * 1000L).setSize(1000));
+            papayaStatusFile.addPartStatusFile(new PartStatusFile(String.valueOf(i), "", PapayaStatus.COMPLETE));
+        }
+        Path store = Files.createDirectories(workspace.resolve("store").resolve(FILE_ID));
+        new ObjectMapper().writeValue(store.resolve(FILE_ID + ".papaya").toFile(), papayaFile);
+        Path file = Files.write(store.resolve("file.bin"), content);
+
+        assertTrue(fileManager.joinStore(papayaStatusFile).isPresent());
+        FileTime modifiedTime = Files.getLastModifiedTime(file);
+        content[0] ^= 1;
+        Files.write(file, content);
+        Files.setLastModifiedTime(file, modifiedTime);
+        fileManager.generateStatus(store.toFile(), false);
+
+        ArgumentCaptor<PapayaStatusFile> statusFile = ArgumentCaptor.forClass(PapayaStatusFile.class);
+        verify(papayaStatusFileService, atLeastOnce()).save(statusFile.capture());
+        assertEquals(List.of("0", "1", "2"), statusFile.getValue().getCompletedParts());
+    }
+
+    private PapayaFile papayaFile() {
+        PapayaFile papayaFile = new PapayaFile("file", HashAlgorithm.SHA256).setFileId(FILE_ID);
+        for (int i = 0; i < 3; i++) {
+            papayaFile.addPartFile(new PartFile(String.valueOf(i), "hash" + i, HashAlgorithm.SHA256));
+        }
+        return papayaFile;
+    }
+}
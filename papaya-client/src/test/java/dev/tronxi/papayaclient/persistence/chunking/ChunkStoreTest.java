@@ -0,0 +1,54 @@
+package dev.tronxi.papayaclient.persistence.chunking;
+
+import dev.tronxi.papayaclient.persistence.hash.HashAlgorithm;
+import dev.tronxi.papayaclient.persistence.papayafile.PartFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkStoreTest {
+
+    private final ChunkStore chunkStore = new ChunkStore();
+
+    @TempDir
+    private Path storePath;
+
+    @Test
+    public void sharesAndReusesCollisionResistantChunks() throws IOException {
+        PartFile partFile = new PartFile("0", "hash", HashAlgorithm.SHA256);
+        Path first = part(storePath.resolve("first"), "content");
+
+        chunkStore.share(storePath, first, partFile);
+        Path second = storePath.resolve("second").resolve("0");
+        Files.createDirectories(second.getParent());
+
+        assertTrue(chunkStore.chunkPath(storePath, partFile).isPresent());
+        assertTrue(chunkStore.reuse(storePath, second, partFile));
+        assertEquals("content", Files.readString(second));
+    }
+
+    @Test
+    public void doesNotDeduplicateWeakHashes() throws IOException {
+        PartFile partFile = new PartFile("0", "hash", HashAlgorithm.XXH64);
+        Path first = part(storePath.resolve("first"), "content");
+
+        chunkStore.share(storePath, first, partFile);
+        Path second = storePath.resolve("second").resolve("0");
+        Files.createDirectories(second.getParent());
+
+        assertTrue(chunkStore.chunkPath(storePath, partFile).isEmpty());
+        assertFalse(Files.exists(storePath.resolve("chunks")));
+        assertFalse(chunkStore.reuse(storePath, second, partFile));
+        assertFalse(Files.exists(second));
+    }
+
+    private Path part(Path directory, String content) throws IOException {
+        Files.createDirectories(directory);
+        return Files.writeString(directory.resolve("0"), content);
+    }
+}
@@ -0,0 +1,114 @@
+package dev.tronxi.papayaclient.persistence.chunking;
+
+import dev.tronxi.papayaclient.peer.PeerMessageType;
+import dev.tronxi.papayaclient.peer.protocol.PeerMessageCodec;
+import dev.tronxi.papayaclient.persistence.PartSizeCalculator;
+import dev.tronxi.papayaclient.persistence.hash.HashAlgorithm;
+import dev.tronxi.papayaclient.persistence.hash.MerkleTree;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentDefinedChunkingStrategyTest {
+
+    private static final long MIN_SIZE = 1024;
+    private static final long AVERAGE_SIZE = 4096;
+    private static final long MAX_SIZE = 16384;
+
+    @TempDir
+    Path tempDir;
+
+    private final ContentDefinedChunkingStrategy chunkingStrategy = new ContentDefinedChunkingStrategy(new PartSizeCalculator());
+
+    @Test
+    public void chunksCoverFileWithinBounds() throws IOException {
+        byte[] data = randomBytes(1024 * 1024, 1);
+        List<Chunk> chunks = chunk(write("file", data));
+
+        long position = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            Chunk chunk = chunks.get(i);
+            assertEquals(position, chunk.position());
+            assertTrue(chunk.size() <= MAX_SIZE);
+            if (i < chunks.size() - 1) {
+                assertTrue(chunk.size() > MIN_SIZE);
+            }
+            position += chunk.size();
+        }
+        assertEquals(data.length, position);
+        assertTrue(chunks.size() > data.length / MAX_SIZE);
+    }
+
+    @Test
+    public void insertionOnlyChangesNearbyChunks() throws IOException {
+        byte[] data = randomBytes(1024 * 1024, 2);
+        byte[] inserted = new byte[data.length + 100];
+        System.arraycopy(randomBytes(100, 3), 0, inserted, 0, 100);
+        System.arraycopy(data, 0, inserted, 100, data.length);
+
+        Set<String> original = contents(data, chunk(write("original", data)));
+        Set<String> shifted = contents(inserted, chunk(write("inserted", inserted)));
+        long shared = shifted.stream().filter(original::contains).count();
+
+        assertTrue(shared >= original.size() - 2);
+    }
+
+    @Test
+    public void largeFileChunksFitInOneFrame() throws IOException {
+        long averageSize = chunkingStrategy.averageSize(20L * 1024 * 1024 * 1024);
+        Path path = tempDir.resolve("sparse");
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.setLength(3 * ContentDefinedChunkingStrategy.MAX_CHUNK_SIZE);
+        }
+        List<Chunk> chunks;
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            chunks = chunkingStrategy.chunk(fileChannel, fileChannel.size(), averageSize);
+        }
+
+        PeerMessageCodec peerMessageCodec = new PeerMessageCodec();
+        int digestLength = MerkleTree.digestLength(HashAlgorithm.SHA256);
+        assertFalse(chunks.isEmpty());
+        chunks.forEach(chunk -> {
+            long blockHashesLength = Integer.BYTES + (long) MerkleTree.blockCount(chunk.size(), MerkleTree.DEFAULT_BLOCK_SIZE) * digestLength;
+            long payloadLength = blockHashesLength + chunk.size();
+            assertTrue(payloadLength <= PeerMessageCodec.MAX_PAYLOAD_LENGTH);
+            assertDoesNotThrow(() -> peerMessageCodec.encodeHeader(PeerMessageType.PART_FILE, "a".repeat(PeerMessageCodec.FILE_ID_LENGTH), 0, 3390, (int) payloadLength));
+        });
+    }
+
+    @Test
+    public void emptyFileHasNoChunks() throws IOException {
+        assertTrue(chunk(write("empty", new byte[0])).isEmpty());
+    }
+
+    private List<Chunk> chunk(Path path) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return chunkingStrategy.chunk(fileChannel, fileChannel.size(), MIN_SIZE, AVERAGE_SIZE, MAX_SIZE);
+        }
+    }
+
+    private Set<String> contents(byte[] data, List<Chunk> chunks) {
+        Set<String> contents = new HashSet<>();
+        chunks.forEach(chunk -> contents.add(Arrays.toString(Arrays.copyOfRange(data, (int) chunk.position(), (int) (chunk.position() + chunk.size())))));
+        return contents;
+    }
+
+    private Path write(String name, byte[] data) throws IOException {
+        return Files.write(tempDir.resolve(name), data);
+    }
+
+    private byte[] randomBytes(int size, long seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,64 @@
+package dev.tronxi.papayaclient.persistence.fingerprint;
+
+import dev.tronxi.papayaclient.persistence.HashGenerator;
+import dev.tronxi.papayaclient.persistence.PartHashExecutor;
+import dev.tronxi.papayaclient.persistence.hash.HashAlgorithm;
+import dev.tronxi.papayaclient.persistence.papayafile.PapayaFile;
+import dev.tronxi.papayaclient.persistence.papayafile.PartFile;
+import dev.tronxi.papayaclient.persistence.storage.MappedPartCache;
+import dev.tronxi.papayaclient.persistence.storage.PartLocation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FingerprintCacheTest {
+
+    private final HashGenerator hashGenerator = new HashGenerator(HashAlgorithm.SHA256);
+    private final FingerprintCache fingerprintCache = new FingerprintCache(new PartHashExecutor(hashGenerator, Executors.newFixedThreadPool(2), new MappedPartCache(false, 0)));
+
+    @TempDir
+    Path store;
+
+    @Test
+    public void trustsUnchangedPartsUnlessDeepVerifying() throws Exception {
+        byte[] original = {1, 2, 3, 4};
+        byte[] tampered = {4, 3, 2, 1};
+        Path part = Files.write(store.resolve("0"), original);
+        PapayaFile papayaFile = new PapayaFile("file.bin", HashAlgorithm.SHA256);
+        papayaFile.addPartFile(new PartFile("0", hashGenerator.generateHash(HashAlgorithm.SHA256, original), HashAlgorithm.SHA256));
+        Function<PartFile, Optional<PartLocation>> locator = partFile -> Optional.of(new PartLocation(part, 0, 4));
+
+        fingerprintCache.record(store, papayaFile, locator);
+        FileTime modifiedTime = Files.getLastModifiedTime(part);
+        Files.write(part, tampered);
+        Files.setLastModifiedTime(part, modifiedTime);
+
+        String originalHash = hashGenerator.generateHash(HashAlgorithm.SHA256, original);
+        String tamperedHash = hashGenerator.generateHash(HashAlgorithm.SHA256, tampered);
+        assertEquals(List.of(Optional.of(originalHash)), fingerprintCache.hashParts(store, papayaFile, locator, false));
+        assertEquals(List.of(Optional.of(tamperedHash)), fingerprintCache.hashParts(store, papayaFile, locator, true));
+        assertEquals(List.of(Optional.of(tamperedHash)), fingerprintCache.hashParts(store, papayaFile, locator, false));
+    }
+
+    @Test
+    public void rehashesPartsWhoseFileChanged() throws Exception {
+        Path part = Files.write(store.resolve("0"), new byte[]{1, 2, 3, 4});
+        PapayaFile papayaFile = new PapayaFile("file.bin", HashAlgorithm.SHA256);
+        papayaFile.addPartFile(new PartFile("0", "stale", HashAlgorithm.SHA256));
+        Function<PartFile, Optional<PartLocation>> locator = partFile -> Optional.of(new PartLocation(part, 0, 4));
+        fingerprintCache.record(store, papayaFile, locator);
+
+        Files.setLastModifiedTime(part, FileTime.fromMillis(Files.getLastModifiedTime(part).toMillis() + 10_000));
+
+        assertEquals(List.of(Optional.of(hashGenerator.generateHash(HashAlgorithm.SHA256, new byte[]{1, 2, 3, 4}))), fingerprintCache.hashParts(store, papayaFile, locator, false));
+    }
+}
@@ -0,0 +1,45 @@
+package dev.tronxi.papayaclient.persistence.hash;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PartHasherBenchmark {
+
+    @Param({"MD5", "SHA256", "XXH64"})
+    private HashAlgorithm hashAlgorithm;
+
+    @Param({"16384", "1048576"})
+    private int size;
+
+    private ByteBuffer content;
+
+    @Setup
+    public void setup() {
+        byte[] bytes = new byte[size];
+        new Random(42).nextBytes(bytes);
+        content = ByteBuffer.allocateDirect(size).put(bytes).flip();
+    }
+
+    @Benchmark
+    public byte[] hash() {
+        PartHasher partHasher = hashAlgorithm.newHasher();
+        partHasher.update(content.duplicate());
+        return partHasher.digest();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PartHasherBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,41 @@
+package dev.tronxi.papayaclient.persistence.hash;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class XxHash64PartHasherTest {
+
+    @Test
+    public void matchesReferenceVectors() {
+        assertEquals("ef46db3751d8e999", hash(""));
+        assertEquals("d24ec4f1a98c6e5b", hash("a"));
+        assertEquals("44bc2cf5ad770999", hash("abc"));
+    }
+
+    @Test
+    public void incrementalUpdatesMatchSingleUpdate() {
+        byte[] content = new byte[1000];
+        new Random(7).nextBytes(content);
+        PartHasher single = new XxHash64PartHasher();
+        single.update(ByteBuffer.wrap(content));
+
+        PartHasher chunked = new XxHash64PartHasher();
+        for (int offset = 0; offset < content.length; offset += 13) {
+            chunked.update(ByteBuffer.wrap(content, offset, Math.min(13, content.length - offset)));
+        }
+
+        assertEquals(HexFormat.of().formatHex(single.digest()), HexFormat.of().formatHex(chunked.digest()));
+    }
+
+    private String hash(String content) {
+        PartHasher partHasher = new XxHash64PartHasher();
+        partHasher.update(ByteBuffer.wrap(content.getBytes(StandardCharsets.US_ASCII)));
+        return HexFormat.of().formatHex(partHasher.digest());
+    }
+}
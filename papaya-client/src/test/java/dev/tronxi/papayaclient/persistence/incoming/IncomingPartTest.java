@@ -0,0 +1,74 @@
+package dev.tronxi.papayaclient.persistence.incoming;
+
+import dev.tronxi.papayaclient.persistence.HashGenerator;
+import dev.tronxi.papayaclient.persistence.hash.BlockHasher;
+import dev.tronxi.papayaclient.persistence.hash.HashAlgorithm;
+import dev.tronxi.papayaclient.persistence.hash.MerkleTree;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncomingPartTest {
+
+    private static final int BLOCK_SIZE = 1024;
+
+    private final HashGenerator hashGenerator = new HashGenerator(HashAlgorithm.SHA256);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void reportsCorruptedBlocks() throws Exception {
+        byte[] content = new byte[5 * BLOCK_SIZE + 100];
+        new Random(3).nextBytes(content);
+        List<byte[]> blockHashes = blockHashes(content);
+        String merkleRoot = hashGenerator.toHex(MerkleTree.root(HashAlgorithm.SHA256, blockHashes));
+
+        byte[] corrupted = content.clone();
+        corrupted[2 * BLOCK_SIZE + 10] ^= 1;
+        corrupted[content.length - 1] ^= 1;
+
+        StagedPart stagedPart = receive(MerkleTree.encode(blockHashes), corrupted, merkleRoot);
+
+        assertEquals(List.of(2, 5), stagedPart.badBlocks());
+        assertTrue(stagedPart.isRepairable());
+        assertEquals(content.length, stagedPart.size());
+    }
+
+    @Test
+    public void ignoresBlockHashesThatDoNotMatchRoot() throws Exception {
+        byte[] content = new byte[3 * BLOCK_SIZE];
+        new Random(5).nextBytes(content);
+        List<byte[]> blockHashes = blockHashes(content);
+        String merkleRoot = hashGenerator.toHex(MerkleTree.root(HashAlgorithm.SHA256, blockHashes));
+        blockHashes.getFirst()[0] ^= 1;
+
+        StagedPart stagedPart = receive(MerkleTree.encode(blockHashes), content, merkleRoot);
+
+        assertFalse(stagedPart.isRepairable());
+        assertEquals(hashGenerator.generateHash(HashAlgorithm.SHA256, content), stagedPart.hash());
+    }
+
+    private StagedPart receive(ByteBuffer prefix, byte[] content, String merkleRoot) throws Exception {
+        ByteBuffer message = ByteBuffer.allocate(prefix.remaining() + content.length).put(prefix).put(content).flip();
+        try (IncomingPart incomingPart = new IncomingPart(directory, "0", hashGenerator, HashAlgorithm.SHA256, BLOCK_SIZE, merkleRoot)) {
+            while (message.hasRemaining()) {
+                incomingPart.write(message.slice(message.position(), Math.min(700, message.remaining())));
+                message.position(message.position() + Math.min(700, message.remaining()));
+            }
+            return incomingPart.finish();
+        }
+    }
+
+    private List<byte[]> blockHashes(byte[] content) {
+        BlockHasher blockHasher = new BlockHasher(HashAlgorithm.SHA256, BLOCK_SIZE);
+        blockHasher.update(ByteBuffer.wrap(content));
+        return blockHasher.finish();
+    }
+}
@@ -0,0 +1,60 @@
+package dev.tronxi.papayaclient.persistence.papayastatusfile;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PapayaStatusFileTest {
+
+    @Test
+    public void tracksCompletionInBitset() {
+        PapayaStatusFile papayaStatusFile = statusFile(4, 1);
+
+        assertEquals(PapayaStatus.INCOMPLETE, papayaStatusFile.getStatus());
+        assertEquals(List.of("1"), papayaStatusFile.getCompletedParts());
+        assertEquals(0.25, papayaStatusFile.getProgress());
+
+        papayaStatusFile.getPartStatusFiles().forEach(papayaStatusFile::markComplete);
+
+        assertEquals(PapayaStatus.COMPLETE, papayaStatusFile.getStatus());
+        assertEquals(4, papayaStatusFile.getCompletedCount());
+        assertTrue(papayaStatusFile.getPartStatusFiles().stream().allMatch(part -> part.getStatus() == PapayaStatus.COMPLETE));
+        assertFalse(papayaStatusFile.markComplete(papayaStatusFile.getPartStatusFiles().getFirst()));
+    }
+
+    @Test
+    public void mergesPersistedCompletion() {
+        PapayaStatusFile persisted = statusFile(3, 2);
+        PapayaStatusFile stale = statusFile(3, 0);
+
+        stale.mergeCompletion(persisted.getCompletion());
+
+        assertEquals(List.of("0", "2"), stale.getCompletedParts());
+        assertEquals(2, stale.getCompletedCount());
+        assertEquals(PapayaStatus.COMPLETE, stale.getPartStatusFiles().get(2).getStatus());
+        assertEquals(PapayaStatus.INCOMPLETE, stale.getPartStatusFiles().get(1).getStatus());
+    }
+
+    @Test
+    public void rebuildsCompletionFromParts() {
+        PapayaStatusFile papayaStatusFile = new PapayaStatusFile();
+        papayaStatusFile.setPartStatusFiles(List.of(
+                new PartStatusFile("0", "a", PapayaStatus.COMPLETE),
+                new PartStatusFile("1", "b", PapayaStatus.INCOMPLETE)));
+
+        assertEquals(1, papayaStatusFile.getCompletedCount());
+        assertTrue(papayaStatusFile.isComplete("0"));
+        assertFalse(papayaStatusFile.isComplete("1"));
+    }
+
+    private PapayaStatusFile statusFile(int parts, int completedPart) {
+        PapayaStatusFile papayaStatusFile = new PapayaStatusFile("file", "id");
+        for (int i = 0; i < parts; i++) {
+            PapayaStatus status = i == completedPart ? PapayaStatus.COMPLETE : PapayaStatus.INCOMPLETE;
+            papayaStatusFile.addPartStatusFile(new PartStatusFile(String.valueOf(i), "hash" + i, status));
+        }
+        return papayaStatusFile;
+    }
+}
@@ -0,0 +1,99 @@
+package dev.tronxi.papayaclient.persistence.services;
+
+import dev.tronxi.papayaclient.persistence.papayastatusfile.PapayaStatus;
+import dev.tronxi.papayaclient.persistence.papayastatusfile.PapayaStatusFile;
+import dev.tronxi.papayaclient.persistence.papayastatusfile.PartStatusFile;
+import dev.tronxi.papayaclient.persistence.store.StatusStore;
+import dev.tronxi.papayaclient.persistence.store.StatusStore.CompletedParts;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PapayaStatusFileServiceTest {
+
+    @TempDir
+    Path workspace;
+
+    private final StatusStore statusStore = mock(StatusStore.class);
+
+    @Test
+    public void completedPartsAreWrittenOnFlush() throws IOException {
+        when(statusStore.findById("id")).thenReturn(Optional.of(statusFile()));
+        PapayaStatusFileService papayaStatusFileService = service();
+
+        PapayaStatusFile papayaStatusFile = papayaStatusFileService.findById("id").orElseThrow();
+        PartStatusFile partStatusFile = papayaStatusFile.getPartStatusFiles().get(1);
+        papayaStatusFile.markComplete(partStatusFile);
+        papayaStatusFileService.savePartStatusFile(papayaStatusFile, partStatusFile);
+
+        verify(statusStore, never()).write(any(), any());
+        assertTrue(papayaStatusFileService.findById("id").orElseThrow().isComplete("1"));
+        assertEquals("id 1", readJournal());
+
+        papayaStatusFileService.flush();
+
+        verify(statusStore).write(eq(List.of()), argThat(completedParts -> isCompletion(completedParts, Set.of("1"), 1)));
+        assertEquals("", readJournal());
+    }
+
+    @Test
+    public void journalIsReplayedOnStartup() throws IOException {
+        when(statusStore.findById("id")).thenReturn(Optional.of(statusFile()));
+        Files.writeString(workspace.resolve("status.journal"), "id 0\nid 1\n");
+
+        PapayaStatusFileService papayaStatusFileService = service();
+
+        assertEquals(PapayaStatus.COMPLETE, papayaStatusFileService.findById("id").orElseThrow().getStatus());
+        verify(statusStore).write(eq(List.of()), argThat(completedParts -> isCompletion(completedParts, Set.of("0", "1"), 2)));
+        assertEquals("", readJournal());
+    }
+
+    @Test
+    public void incompleteSweepLoadsOnlyIndexedCandidates() {
+        when(statusStore.findFileIdsByStatus(PapayaStatus.INCOMPLETE)).thenReturn(List.of("id"));
+        when(statusStore.findById("id")).thenReturn(Optional.of(statusFile()));
+
+        List<PapayaStatusFile> incomplete = service().findAllIncomplete();
+
+        assertEquals(List.of("id"), incomplete.stream().map(PapayaStatusFile::getFileId).toList());
+        verify(statusStore, never()).findAll();
+    }
+
+    private PapayaStatusFileService service() {
+        ConfigService configService = mock(ConfigService.class);
+        when(configService.retrieveWorkspace()).thenReturn(Optional.of(workspace.toString()));
+        PapayaStatusFileService papayaStatusFileService = new PapayaStatusFileService(statusStore, configService);
+        papayaStatusFileService.init();
+        return papayaStatusFileService;
+    }
+
+    private PapayaStatusFile statusFile() {
+        PapayaStatusFile papayaStatusFile = new PapayaStatusFile("file", "id");
+        for (int i = 0; i < 2; i++) {
+            PartStatusFile partStatusFile = new PartStatusFile(String.valueOf(i), "hash" + i, PapayaStatus.INCOMPLETE);
+            partStatusFile.setId((long) i);
+            papayaStatusFile.addPartStatusFile(partStatusFile);
+        }
+        return papayaStatusFile;
+    }
+
+    private boolean isCompletion(List<CompletedParts> completedParts, Set<String> partFileNames, int completedCount) {
+        return completedParts.size() == 1
+                && completedParts.getFirst().partFileNames().equals(partFileNames)
+                && completedParts.getFirst().papayaStatusFile().getCompletedCount() == completedCount;
+    }
+
+    private String readJournal() throws IOException {
+        return Files.readString(workspace.resolve("status.journal")).strip();
+    }
+}
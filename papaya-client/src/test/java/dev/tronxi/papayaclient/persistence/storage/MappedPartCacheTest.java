@@ -0,0 +1,52 @@
+package dev.tronxi.papayaclient.persistence.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedPartCacheTest {
+
+    @TempDir
+    Path store;
+
+    @Test
+    public void mapsPartRegions() throws Exception {
+        Path path = Files.write(store.resolve("file.bin"), new byte[]{0, 1, 2, 3, 4, 5, 6, 7});
+        MappedPartCache mappedPartCache = new MappedPartCache(true, 1024);
+
+        ByteBuffer region = mappedPartCache.map(new PartLocation(path, 2, 4)).orElseThrow();
+
+        assertEquals(4, region.remaining());
+        assertEquals(2, region.get(0));
+        assertEquals(5, region.get(3));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedRegionsOverTheLimit() throws Exception {
+        Path path = Files.write(store.resolve("file.bin"), new byte[30]);
+        MappedPartCache mappedPartCache = new MappedPartCache(true, 20);
+        PartLocation first = new PartLocation(path, 0, 10);
+        PartLocation second = new PartLocation(path, 10, 10);
+
+        mappedPartCache.map(first);
+        mappedPartCache.map(second);
+        mappedPartCache.map(first);
+        mappedPartCache.map(new PartLocation(path, 20, 10));
+        assertEquals(20, mappedPartCache.getMappedBytes());
+
+        mappedPartCache.evict(store);
+        assertEquals(0, mappedPartCache.getMappedBytes());
+    }
+
+    @Test
+    public void doesNothingWhenDisabled() throws Exception {
+        Path path = Files.write(store.resolve("file.bin"), new byte[8]);
+
+        assertTrue(new MappedPartCache(false, 1024).map(new PartLocation(path, 0, 8)).isEmpty());
+    }
+}
@@ -0,0 +1,76 @@
+package dev.tronxi.papayaclient.persistence.storage;
+
+import dev.tronxi.papayaclient.persistence.HashGenerator;
+import dev.tronxi.papayaclient.persistence.PartHashExecutor;
+import dev.tronxi.papayaclient.persistence.chunking.ChunkStore;
+import dev.tronxi.papayaclient.persistence.hash.HashAlgorithm;
+import dev.tronxi.papayaclient.persistence.incoming.StagedPart;
+import dev.tronxi.papayaclient.persistence.papayafile.PapayaFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFilePartStorageTest {
+
+    private static final int PART_SIZE = 1000;
+
+    private final HashGenerator hashGenerator = new HashGenerator(HashAlgorithm.SHA256);
+    private final SingleFilePartStorage partStorage = new SingleFilePartStorage(new PartHashExecutor(hashGenerator, Executors.newSingleThreadExecutor(), new MappedPartCache(false, 0)), new ChunkStore());
+
+    @TempDir
+    Path store;
+
+    @Test
+    public void writesPartsAtTheirOffsets() throws Exception {
+        byte[] content = new byte[3 * PART_SIZE + 250];
+        new Random(11).nextBytes(content);
+        PapayaFile papayaFile = new PapayaFile("file.bin", HashAlgorithm.SHA256)
+                .setFileSize(content.length)
+                .setPartSize(PART_SIZE);
+
+        partStorage.allocate(store, papayaFile);
+        assertEquals(content.length, Files.size(store.resolve("file.bin")));
+
+        for (int partIndex : new int[]{3, 1, 0, 2}) {
+            byte[] part = Arrays.copyOfRange(content, partIndex * PART_SIZE, Math.min(content.length, (partIndex + 1) * PART_SIZE));
+            Path staged = Files.write(store.resolve(partIndex + ".tmp"), part);
+            partStorage.commit(store, papayaFile, String.valueOf(partIndex), new StagedPart(staged, part.length, hashGenerator.generateHash(HashAlgorithm.SHA256, part)));
+            assertFalse(Files.exists(staged));
+        }
+
+        PartLocation lastPart = partStorage.locate(store, papayaFile, "3", true).orElseThrow();
+        assertEquals(3 * PART_SIZE, lastPart.position());
+        assertEquals(250, lastPart.size());
+        assertArrayEquals(content, Files.readAllBytes(partStorage.join(store, papayaFile, Set.of(), false)));
+    }
+
+    @Test
+    public void usesPartFilesForDescriptorsWithoutPartSize() throws Exception {
+        PapayaFile papayaFile = new PapayaFile("file.bin", HashAlgorithm.SHA256);
+        Files.write(store.resolve("0"), new byte[]{1, 2, 3});
+
+        PartLocation partLocation = partStorage.locate(store, papayaFile, "0", true).orElseThrow();
+
+        assertEquals(new PartLocation(store.resolve("0"), 0, 3), partLocation);
+        assertTrue(partStorage.locate(store, papayaFile, "1", true).isEmpty());
+    }
+
+    @Test
+    public void incompletePartsAreNotLocatedInAllocatedFile() throws Exception {
+        PapayaFile papayaFile = new PapayaFile("file.bin", HashAlgorithm.SHA256)
+                .setFileSize(2 * PART_SIZE)
+                .setPartSize(PART_SIZE);
+        partStorage.allocate(store, papayaFile);
+
+        assertTrue(partStorage.locate(store, papayaFile, "0", false).isEmpty());
+        assertEquals(new PartLocation(store.resolve("file.bin"), PART_SIZE, PART_SIZE), partStorage.locate(store, papayaFile, "1", true).orElseThrow());
+    }
+}
@@ -0,0 +1,80 @@
+package dev.tronxi.papayaclient.persistence.storage;
+
+import dev.tronxi.papayaclient.persistence.HashGenerator;
+import dev.tronxi.papayaclient.persistence.PartHashExecutor;
+import dev.tronxi.papayaclient.persistence.chunking.ChunkStore;
+import dev.tronxi.papayaclient.persistence.hash.HashAlgorithm;
+import dev.tronxi.papayaclient.persistence.papayafile.PapayaFile;
+import dev.tronxi.papayaclient.persistence.papayafile.PartFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SplitPartStorageTest {
+
+    private static final int PART_SIZE = 1000;
+
+    private final HashGenerator hashGenerator = new HashGenerator(HashAlgorithm.SHA256);
+    private final SplitPartStorage partStorage = new SplitPartStorage(new PartHashExecutor(hashGenerator, Executors.newFixedThreadPool(4), new MappedPartCache(false, 0)), new ChunkStore());
+
+    @TempDir
+    Path store;
+
+    @Test
+    public void joinsPartsAtTheirOffsets() throws Exception {
+        byte[] content = new byte[5 * PART_SIZE + 17];
+        new Random(13).nextBytes(content);
+        PapayaFile papayaFile = writeParts(content);
+
+        Path joined = partStorage.join(store, papayaFile, Set.of("0", "2", "4"), false);
+
+        assertArrayEquals(content, Files.readAllBytes(joined));
+    }
+
+    @Test
+    public void rejectsUnverifiedPartsWithWrongHash() throws Exception {
+        byte[] content = new byte[3 * PART_SIZE];
+        new Random(17).nextBytes(content);
+        PapayaFile papayaFile = writeParts(content);
+        Files.write(store.resolve("1"), new byte[PART_SIZE]);
+
+        assertThrows(IOException.class, () -> partStorage.join(store, papayaFile, Set.of("0", "2"), false));
+    }
+
+    @Test
+    public void resumesFromJournal() throws Exception {
+        byte[] content = new byte[3 * PART_SIZE];
+        new Random(19).nextBytes(content);
+        PapayaFile papayaFile = writeParts(content);
+        byte[] partial = new byte[content.length];
+        Arrays.fill(partial, (byte) 7);
+        Files.write(store.resolve("file.bin"), partial);
+        Files.writeString(store.resolve("file.bin.join"), "0\n");
+
+        byte[] joined = Files.readAllBytes(partStorage.join(store, papayaFile, Set.of("0", "1", "2"), true));
+
+        assertEquals(7, joined[0]);
+        assertEquals(7, joined[PART_SIZE - 1]);
+        assertArrayEquals(Arrays.copyOfRange(content, PART_SIZE, content.length), Arrays.copyOfRange(joined, PART_SIZE, content.length));
+        assertFalse(Files.exists(store.resolve("file.bin.join")));
+    }
+
+    private PapayaFile writeParts(byte[] content) throws IOException {
+        PapayaFile papayaFile = new PapayaFile("file.bin", HashAlgorithm.SHA256);
+        for (int partIndex = 0; partIndex * PART_SIZE < content.length; partIndex++) {
+            byte[] part = Arrays.copyOfRange(content, partIndex * PART_SIZE, Math.min(content.length, (partIndex + 1) * PART_SIZE));
+            Files.write(store.resolve(String.valueOf(partIndex)), part);
+            papayaFile.addPartFile(new PartFile(String.valueOf(partIndex), hashGenerator.generateHash(HashAlgorithm.SHA256, part), HashAlgorithm.SHA256));
+        }
+        return papayaFile;
+    }
+}
@@ -0,0 +1,106 @@
+package dev.tronxi.papayaclient.persistence.store;
+
+import dev.tronxi.papayaclient.peer.Peer;
+import dev.tronxi.papayaclient.persistence.papayastatusfile.*;
+import dev.tronxi.papayaclient.persistence.store.StatusStore.CompletedParts;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogStatusStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void statusIsRecoveredFromLogOnReopen() throws IOException {
+        LogStatusStore statusStore = open(1000);
+        PapayaStatusFile papayaStatusFile = statusFile();
+        statusStore.write(List.of(papayaStatusFile), List.of());
+        papayaStatusFile.markComplete(papayaStatusFile.getPartStatusFiles().getFirst());
+        statusStore.write(List.of(), List.of(new CompletedParts(papayaStatusFile, Set.of("0"))));
+        statusStore.close();
+
+        LogStatusStore reopened = open(1000);
+        PapayaStatusFile recovered = reopened.findById("id").orElseThrow();
+
+        assertEquals(2, recovered.getPartCount());
+        assertEquals(1, recovered.getCompletedCount());
+        assertTrue(recovered.isComplete("0"));
+        assertEquals(papayaStatusFile.getPartStatusFiles().getFirst().getId(), recovered.getPartStatusFiles().getFirst().getId());
+        assertEquals(1, recovered.getPartStatusFiles().getFirst().getPartPeerStatusFiles().size());
+        assertEquals(List.of("id"), reopened.findFileIdsByStatus(PapayaStatus.INCOMPLETE));
+        reopened.close();
+    }
+
+    @Test
+    public void logIsCompactedIntoSnapshot() throws IOException {
+        LogStatusStore statusStore = open(2);
+        PapayaStatusFile papayaStatusFile = statusFile();
+        statusStore.write(List.of(papayaStatusFile), List.of());
+        papayaStatusFile.getPartStatusFiles().forEach(papayaStatusFile::markComplete);
+        statusStore.write(List.of(), List.of(new CompletedParts(papayaStatusFile, Set.of("0", "1"))));
+        statusStore.write(List.of(papayaStatusFile.setJoinStatus(JoinStatus.COMPLETED)), List.of());
+        statusStore.close();
+
+        assertEquals(0, Files.size(directory.resolve("status.log")));
+        LogStatusStore reopened = open(2);
+        assertEquals(List.of(), reopened.findFileIdsByStatusAndJoinStatusNot(PapayaStatus.COMPLETE, JoinStatus.COMPLETED));
+        assertEquals(PapayaStatus.COMPLETE, reopened.findById("id").orElseThrow().getStatus());
+        reopened.close();
+    }
+
+    @Test
+    public void removedFilesAreNotRecovered() throws IOException {
+        LogStatusStore statusStore = open(1000);
+        PapayaStatusFile papayaStatusFile = statusFile();
+        statusStore.write(List.of(papayaStatusFile), List.of());
+        statusStore.remove(papayaStatusFile);
+        statusStore.close();
+
+        LogStatusStore reopened = open(1000);
+        assertTrue(reopened.findAll().isEmpty());
+        reopened.close();
+    }
+
+    @Test
+    public void tornTailIsDiscarded() throws IOException {
+        LogStatusStore statusStore = open(1000);
+        statusStore.write(List.of(statusFile()), List.of());
+        statusStore.close();
+        Files.writeString(directory.resolve("status.log"), "{\"type\":\"DEL", StandardOpenOption.APPEND);
+
+        LogStatusStore reopened = open(1000);
+        assertTrue(reopened.findById("id").isPresent());
+        reopened.write(List.of(), List.of());
+        reopened.close();
+
+        LogStatusStore recovered = open(1000);
+        assertTrue(recovered.findById("id").isPresent());
+        recovered.close();
+    }
+
+    private LogStatusStore open(int compactThreshold) throws IOException {
+        LogStatusStore statusStore = new LogStatusStore(directory.toString(), compactThreshold);
+        statusStore.open();
+        return statusStore;
+    }
+
+    private PapayaStatusFile statusFile() {
+        PapayaStatusFile papayaStatusFile = new PapayaStatusFile("file", "id");
+        for (int i = 0; i < 2; i++) {
+            PartStatusFile partStatusFile = new PartStatusFile(String.valueOf(i), "hash" + i, PapayaStatus.INCOMPLETE);
+            partStatusFile.addPeer(new PartPeerStatusFile(new Peer("127.0.0.1", 3390 + i), PartPeerStatus.ASKED, i));
+            papayaStatusFile.addPartStatusFile(partStatusFile);
+        }
+        return papayaStatusFile;
+    }
+}
@@ -1,12 +1,19 @@
 package dev.tronxi.papayaregistryback.models.papayafile;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
+@JsonIgnoreProperties(ignoreUnknown = true)
 public class PapayaFile {
     private String fileName;
     private String fileId;
+    private String hashAlgorithm;
+    private int blockSize;
+    private long fileSize;
+    private long partSize;
     private List<PartFile> partFiles;
 
     public PapayaFile(String fileName) {
@@ -36,6 +43,42 @@ public class PapayaFile {
         return this;
     }
 
+    public String getHashAlgorithm() {
+        return hashAlgorithm;
+    }
+
+    public PapayaFile setHashAlgorithm(String hashAlgorithm) {
+        this.hashAlgorithm = hashAlgorithm;
+        return this;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public PapayaFile setBlockSize(int blockSize) {
+        this.blockSize = blockSize;
+        return this;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public PapayaFile setFileSize(long fileSize) {
+        this.fileSize = fileSize;
+        return this;
+    }
+
+    public long getPartSize() {
+        return partSize;
+    }
+
+    public PapayaFile setPartSize(long partSize) {
+        this.partSize = partSize;
+        return this;
+    }
+
     public List<PartFile> getPartFiles() {
         return partFiles;
     }
@@ -1,8 +1,15 @@
 package dev.tronxi.papayaregistryback.models.papayafile;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
 public class PartFile {
     private String fileName;
     private String fileHash;
+    private String hashAlgorithm;
+    private String merkleRoot;
+    private long offset;
+    private long size;
 
     public PartFile(String fileName, String fileHash) {
         this.fileName = fileName;
@@ -21,6 +28,42 @@ public class PartFile {
         return this;
     }
 
+    public String getHashAlgorithm() {
+        return hashAlgorithm;
+    }
+
+    public PartFile setHashAlgorithm(String hashAlgorithm) {
+        this.hashAlgorithm = hashAlgorithm;
+        return this;
+    }
+
+    public String getMerkleRoot() {
+        return merkleRoot;
+    }
+
+    public PartFile setMerkleRoot(String merkleRoot) {
+        this.merkleRoot = merkleRoot;
+        return this;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public PartFile setOffset(long offset) {
+        this.offset = offset;
+        return this;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public PartFile setSize(long size) {
+        this.size = size;
+        return this;
+    }
+
     public String getFileName() {
         return fileName;
     }